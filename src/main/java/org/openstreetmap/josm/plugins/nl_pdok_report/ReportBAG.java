@@ -3,36 +3,28 @@ package org.openstreetmap.josm.plugins.nl_pdok_report;
 
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.Locale;
 
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore.CodeColumn;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore.LongColumn;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore.TextColumn;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
- * A ReportBAG object represents each of the reports.
+ * A ReportBAG object represents each of the reports. The attributes of the report are kept in the
+ * {@link ReportStore}, the object itself only holds its row there.
  *
  * @author SanderH
  * @see ReportData
  */
 public class ReportBAG extends AbstractReport {
-  private final String source;
-  private final String sourceMaintainerCode;
-  private final String sourceMaintainerName;
-  private final URL locationLink;
-  private final Long reportNumber;
-  private final String reportNumberFull;
-  private final String product;
-  private final String status;
-  private final String statusCode;
-  private final Date reportedAt;
-  private final Date statusModifiedAt;
-  private final Date modifiedAt;
-  private final String explanation;
-  private final String objectId;
-  private final String objectType;
+  private static final ReportStore STORE = ReportStore.getInstance();
+
+  /** The row in the {@link ReportStore} with the attributes of this report. */
+  private final int row;
 
   /**
    * Main constructor of the class ReportBAG
@@ -48,54 +40,67 @@ public class ReportBAG extends AbstractReport {
     final LatLon latLon, final String baseRegistration, final String source, final String sourceMaintainerCode,
     final String sourceMaintainerName, final String locationLink, final Long reportNumber,
     final String reportNumberFull, final String description, final String product, final String status,
-    final String statusCode, final Date reportedAt, final Date statusModifiedAt, final Date modifiedAt,
+    final String statusCode, final long reportedAt, final long statusModifiedAt, final long modifiedAt,
     final String explanation, final String objectId, final String objectType
   ) {
     super(latLon);
-    this.source = source;
-    this.sourceMaintainerCode = sourceMaintainerCode;
-    this.sourceMaintainerName = sourceMaintainerName;
-    URL tempLocationLink = null;
+    this.description = description;
+    String checkedLocationLink = null;
     try {
       if (locationLink != null) {
-        tempLocationLink = new URL(locationLink);
+        checkedLocationLink = new URL(locationLink).toString();
       }
     } catch (MalformedURLException e) {
       Logging.error("URL is malformed", e);
     }
-    this.locationLink = tempLocationLink;
-    this.reportNumber = reportNumber;
-    this.reportNumberFull = reportNumberFull;
-    this.description = description;
-    this.product = product;
-    this.status = status;
-    this.statusCode = statusCode;
-    this.reportedAt = reportedAt;
-    this.statusModifiedAt = statusModifiedAt;
-    this.modifiedAt = modifiedAt;
-    this.explanation = explanation;
-    this.objectId = objectId;
-    this.objectType = objectType;
+    // Every column is written, the row may have belonged to a report that has been garbage collected
+    this.row = STORE.allocate(this);
+    STORE.setCode(row, CodeColumn.SOURCE, source);
+    STORE.setCode(row, CodeColumn.SOURCE_MAINTAINER_CODE, sourceMaintainerCode);
+    STORE.setCode(row, CodeColumn.SOURCE_MAINTAINER_NAME, sourceMaintainerName);
+    STORE.setCode(row, CodeColumn.PRODUCT, product);
+    STORE.setCode(row, CodeColumn.STATUS, status);
+    STORE.setCode(row, CodeColumn.STATUS_CODE, statusCode);
+    STORE.setCode(row, CodeColumn.OBJECT_TYPE, objectType);
+    STORE.setLong(row, LongColumn.REPORT_NUMBER, reportNumber == null ? ReportStore.NO_VALUE : reportNumber);
+    STORE.setLong(row, LongColumn.REPORTED_AT, reportedAt);
+    STORE.setLong(row, LongColumn.STATUS_MODIFIED_AT, statusModifiedAt);
+    STORE.setLong(row, LongColumn.MODIFIED_AT, modifiedAt);
+    STORE.setText(row, TextColumn.REPORT_NUMBER_FULL, reportNumberFull);
+    STORE.setText(row, TextColumn.EXPLANATION, explanation);
+    STORE.setText(row, TextColumn.OBJECT_ID, objectId);
+    STORE.setText(row, TextColumn.LOCATION_LINK, checkedLocationLink);
+  }
+
+  private static Date toDate(final long time) {
+    return time == ReportDateFormat.NO_TIME ? null : new Date(time);
   }
 
   public String getSource() {
-    return source;
+    return STORE.getCode(row, CodeColumn.SOURCE);
   }
 
   public String getSourceMaintainerCode() {
-    return sourceMaintainerCode;
+    return STORE.getCode(row, CodeColumn.SOURCE_MAINTAINER_CODE);
   }
 
   public String getSourceMaintainerName() {
-    return sourceMaintainerName;
+    return STORE.getCode(row, CodeColumn.SOURCE_MAINTAINER_NAME);
   }
 
   public URL getLocationLink() {
-    return locationLink;
+    final String locationLink = STORE.getText(row, TextColumn.LOCATION_LINK);
+    try {
+      return locationLink == null ? null : new URL(locationLink);
+    } catch (MalformedURLException e) {
+      // Checked by the constructor
+      throw new IllegalStateException(e);
+    }
   }
 
   public Long getReportNumber() {
-    return reportNumber;
+    final long reportNumber = STORE.getLong(row, LongColumn.REPORT_NUMBER);
+    return reportNumber == ReportStore.NO_VALUE ? null : reportNumber;
   }
 
   /**
@@ -104,70 +109,92 @@ public class ReportBAG extends AbstractReport {
    * @return A {@code String} containing the unique identifier of the object.
    */
   public String getReportNumberFull() {
-    return reportNumberFull;
+    return STORE.getText(row, TextColumn.REPORT_NUMBER_FULL);
   }
 
   public String getProduct() {
-    return product;
+    return STORE.getCode(row, CodeColumn.PRODUCT);
   }
 
   public String getStatus() {
-    return status;
+    return STORE.getCode(row, CodeColumn.STATUS);
   }
 
   public String getStatusCode() {
-    return statusCode;
+    return STORE.getCode(row, CodeColumn.STATUS_CODE);
   }
 
   public Date getReportedAt() {
-    return reportedAt;
+    return toDate(getReportedAtTime());
+  }
+
+  /**
+   * @return the Epoch time in milliseconds when the report was registered, {@link ReportDateFormat#NO_TIME} if it is
+   *         not known
+   */
+  public long getReportedAtTime() {
+    return STORE.getLong(row, LongColumn.REPORTED_AT);
   }
 
   public String getReportedAt(String dateformat) {
-    return getDate(reportedAt, dateformat);
+    return ReportDateFormat.format(getReportedAtTime(), dateformat);
   }
 
   public Date getStatusModifiedAt() {
-    return statusModifiedAt;
+    return toDate(getStatusModifiedAtTime());
+  }
+
+  /**
+   * @return the Epoch time in milliseconds when the status was last changed, {@link ReportDateFormat#NO_TIME} if it is
+   *         not known
+   */
+  public long getStatusModifiedAtTime() {
+    return STORE.getLong(row, LongColumn.STATUS_MODIFIED_AT);
   }
 
   public String getStatusModifiedAt(String dateformat) {
-    return getDate(statusModifiedAt, dateformat);
+    return ReportDateFormat.format(getStatusModifiedAtTime(), dateformat);
   }
 
   public Date getModifiedAt() {
-    return modifiedAt;
+    return toDate(getModifiedAtTime());
+  }
+
+  /**
+   * @return the Epoch time in milliseconds when the report was last modified, {@link ReportDateFormat#NO_TIME} if it
+   *         is not known
+   */
+  public long getModifiedAtTime() {
+    return STORE.getLong(row, LongColumn.MODIFIED_AT);
   }
 
   public String getModifiedAt(String dateformat) {
-    return getDate(modifiedAt, dateformat);
+    return ReportDateFormat.format(getModifiedAtTime(), dateformat);
   }
 
   /**
-   * Returns the date the picture was taken in the given format.
+   * Returns the date in the given format.
    *
    * @param format
-   *          Format of the date. See {@link SimpleDateFormat}.
-   * @return A String containing the date the picture was taken using the given format.
+   *          Format of the date. See {@link java.text.SimpleDateFormat}.
+   * @return A String containing the date using the given format, an empty String if the date is <code>null</code>.
    * @throws NullPointerException
    *           if parameter format is <code>null</code>
    */
   public String getDate(Date date, String format) {
-    final SimpleDateFormat formatter = new SimpleDateFormat(format, Locale.US);
-    formatter.setTimeZone(Calendar.getInstance().getTimeZone());
-    return date == null ? "" : formatter.format(date);
+    return ReportDateFormat.format(date == null ? ReportDateFormat.NO_TIME : date.getTime(), format);
   }
 
   public String getExplanation() {
-    return explanation;
+    return STORE.getText(row, TextColumn.EXPLANATION);
   }
 
   public String getObjectId() {
-    return objectId;
+    return STORE.getText(row, TextColumn.OBJECT_ID);
   }
 
   public String getObjectType() {
-    return objectType;
+    return STORE.getCode(row, CodeColumn.OBJECT_TYPE);
   }
 
   @Override
@@ -177,25 +204,25 @@ public class ReportBAG extends AbstractReport {
 
   @Override
   public String toString() {
-    return String.format("Report[report=%s,lat=%f,lon=%f,ca=%f]", reportNumberFull, latLon.lat(), latLon.lon());
+    return String.format("Report[report=%s,lat=%f,lon=%f,ca=%f]", getReportNumberFull(), latLon.lat(), latLon.lon());
   }
 
   @Override
   public boolean equals(Object object) {
-    return object instanceof ReportBAG && this.reportNumberFull.equals(((ReportBAG) object).getReportNumberFull());
+    return object instanceof ReportBAG && getReportNumberFull().equals(((ReportBAG) object).getReportNumberFull());
   }
 
   @Override
   public int compareTo(AbstractReport image) {
     if (image instanceof ReportBAG) {
-      return this.reportNumberFull.compareTo(((ReportBAG) image).getReportNumberFull());
+      return getReportNumberFull().compareTo(((ReportBAG) image).getReportNumberFull());
     }
     return hashCode() - image.hashCode();
   }
 
   @Override
   public int hashCode() {
-    return this.reportNumberFull.hashCode();
+    return getReportNumberFull().hashCode();
   }
 
   @Override
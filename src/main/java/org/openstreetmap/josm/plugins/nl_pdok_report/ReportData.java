@@ -1,24 +1,31 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.nl_pdok_report;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.Data;
 import org.openstreetmap.josm.data.DataSource;
-import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.plugins.nl_pdok_report.gui.ReportNewDialog;
 import org.openstreetmap.josm.plugins.nl_pdok_report.gui.reportinfo.ReportInfoPanel;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.DownloadCoverage;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportAttributeIndex;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportGridIndex;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -29,6 +36,26 @@ import org.openstreetmap.josm.tools.Logging;
  */
 public class ReportData implements Data {
   private Set<AbstractReport> reports = ConcurrentHashMap.newKeySet();
+  /**
+   * The downloaded reports by their full report number, to find the report that is replaced by a modified version.
+   */
+  private final Map<String, ReportBAG> reportsByNumber = new ConcurrentHashMap<>();
+  /**
+   * The reports by their position, to find the reports in the view or under the cursor.
+   */
+  private final ReportGridIndex index = new ReportGridIndex();
+  /**
+   * The downloaded reports by status code, by the code of the maintainer of the source and by BAG object id.
+   */
+  private final ReportAttributeIndex<String> reportsByStatus = new ReportAttributeIndex<>(ReportBAG::getStatusCode);
+  private final ReportAttributeIndex<String> reportsByMaintainer = new ReportAttributeIndex<>(
+    ReportBAG::getSourceMaintainerCode
+  );
+  private final ReportAttributeIndex<String> reportsByObjectId = new ReportAttributeIndex<>(ReportBAG::getObjectId);
+  /**
+   * The reports that have been created by the user and have not been uploaded yet.
+   */
+  private final Set<ReportNewBAG> newReports = ConcurrentHashMap.newKeySet();
   /**
    * The image currently selected, this is the one being shown.
    */
@@ -46,25 +73,45 @@ public class ReportData implements Data {
    */
   private final List<ReportDataListener> listeners = new CopyOnWriteArrayList<>();
   /**
-   * The bounds of the areas for which the reports have been downloaded.
+   * The tiles for which the reports have been downloaded.
    */
-  private final List<Bounds> bounds;
+  private final DownloadCoverage coverage;
 
   /**
    * Creates a new object and adds the initial set of listeners.
    */
   protected ReportData() {
+    this(true);
+  }
+
+  /**
+   * @param attached
+   *          if true, the actions and dialogs of the plugin are added as listeners
+   */
+  private ReportData(final boolean attached) {
     this.selectedReport = null;
-    this.bounds = new CopyOnWriteArrayList<>();
+    this.coverage = new DownloadCoverage(ReportProperties.DOWNLOAD_TILE_ZOOM.get());
 
-    // Adds the basic set of listeners.
-    Arrays.stream(ReportPlugin.getReportDataListeners()).forEach(this::addListener);
-    if (MainApplication.getMainFrame() != null) {
-      addListener(ReportInfoPanel.getInstance());
-      addListener(ReportNewDialog.getInstance());
+    if (attached) {
+      // Adds the basic set of listeners.
+      Arrays.stream(ReportPlugin.getReportDataListeners()).forEach(this::addListener);
+      if (MainApplication.getMainFrame() != null) {
+        addListener(ReportInfoPanel.getInstance());
+        addListener(ReportNewDialog.getInstance());
+      }
     }
   }
 
+  /**
+   * Creates an object that is not connected to the layer, the actions or the dialogs of the plugin, so it can be used
+   * without a GUI.
+   *
+   * @return a new, empty object without listeners
+   */
+  public static ReportData createDetached() {
+    return new ReportData(false);
+  }
+
   /**
    * Adds an ReportBAG to the object, and then repaints mapView.
    *
@@ -86,13 +133,7 @@ public class ReportData implements Data {
    *           if parameter <code>image</code> is <code>null</code>
    */
   public void add(AbstractReport report, boolean update) {
-    if (!reports.add(report)) {
-      fireReportsAdded();
-    }
-    if (update) {
-      ReportLayer.invalidateInstance();
-    }
-    fireReportsAdded();
+    addAll(Collections.singletonList(report), update);
   }
 
   /**
@@ -106,7 +147,9 @@ public class ReportData implements Data {
   }
 
   /**
-   * Adds a set of {link AbstractReport} objects to this object.
+   * Adds a set of {link AbstractReport} objects to this object. All reports are added as one batch, so the listeners are
+   * notified only once, after the whole set has been added. Use this instead of calling {@link #add(AbstractReport)}
+   * for each report, when adding the result of a download.
    *
    * @param newReports
    *          The set of images to be added.
@@ -114,13 +157,96 @@ public class ReportData implements Data {
    *          Whether the map must be updated or not.
    */
   public void addAll(Collection<? extends AbstractReport> newReports, boolean update) {
-    reports.addAll(newReports);
+    final AbstractReport oldSelectedReport;
+    boolean changed = false;
+    synchronized (reportsByNumber) {
+      oldSelectedReport = this.selectedReport;
+      for (AbstractReport report : newReports) {
+        changed |= put(report);
+      }
+    }
+    if (!changed) {
+      return;
+    }
     if (update) {
       ReportLayer.invalidateInstance();
     }
+    if (this.selectedReport != oldSelectedReport) {
+      fireSelectedReportChanged(oldSelectedReport, this.selectedReport);
+    }
     fireReportsAdded();
   }
 
+  /**
+   * Adds a report to the set of reports. A {@link ReportBAG} replaces a report with the same report number that is
+   * already present, if it has been modified more recently (according to {@link ReportBAG#getModifiedAt()}). Must be
+   * called while holding the lock on {@link #reportsByNumber}.
+   *
+   * @param report
+   *          The report to be added.
+   * @return true if the report has been added or has replaced another report; false if it was already present
+   */
+  private boolean put(AbstractReport report) {
+    if (!(report instanceof ReportBAG)) {
+      if (reports.add(report)) {
+        addToIndexes(report);
+        return true;
+      }
+      return false;
+    }
+    final ReportBAG newReport = (ReportBAG) report;
+    final ReportBAG oldReport = reportsByNumber.get(newReport.getReportNumberFull());
+    if (oldReport != null && reports.contains(oldReport) && !isNewer(newReport, oldReport)) {
+      return false;
+    }
+    reportsByNumber.put(newReport.getReportNumberFull(), newReport);
+    if (oldReport != null) {
+      reports.remove(oldReport);
+      removeFromIndexes(oldReport);
+      if (this.multiSelectedReports.remove(oldReport)) {
+        this.multiSelectedReports.add(newReport);
+      }
+      if (this.highlightedReport == oldReport) {
+        this.highlightedReport = newReport;
+      }
+      if (this.selectedReport == oldReport) {
+        this.selectedReport = newReport;
+      }
+    }
+    reports.add(newReport);
+    addToIndexes(newReport);
+    return true;
+  }
+
+  private void addToIndexes(AbstractReport report) {
+    index.add(report);
+    if (report instanceof ReportBAG) {
+      final ReportBAG downloaded = (ReportBAG) report;
+      reportsByStatus.add(downloaded);
+      reportsByMaintainer.add(downloaded);
+      reportsByObjectId.add(downloaded);
+    } else if (report instanceof ReportNewBAG) {
+      newReports.add((ReportNewBAG) report);
+    }
+  }
+
+  private void removeFromIndexes(AbstractReport report) {
+    index.remove(report);
+    if (report instanceof ReportBAG) {
+      final ReportBAG downloaded = (ReportBAG) report;
+      reportsByStatus.remove(downloaded);
+      reportsByMaintainer.remove(downloaded);
+      reportsByObjectId.remove(downloaded);
+    } else if (report instanceof ReportNewBAG) {
+      newReports.remove(report);
+    }
+  }
+
+  private static boolean isNewer(ReportBAG report, ReportBAG other) {
+    return report.getModifiedAtTime() != ReportDateFormat.NO_TIME
+      && report.getModifiedAtTime() > other.getModifiedAtTime();
+  }
+
   /**
    * Adds a new listener.
    *
@@ -165,8 +291,13 @@ public class ReportData implements Data {
     ReportLayer.invalidateInstance();
   }
 
-  public List<Bounds> getBounds() {
-    return bounds;
+  /**
+   * Returns the index of the areas for which the reports have been downloaded.
+   *
+   * @return the {@link DownloadCoverage} of this object
+   */
+  public DownloadCoverage getCoverage() {
+    return coverage;
   }
 
   /**
@@ -176,7 +307,14 @@ public class ReportData implements Data {
    *          The {@link AbstractReport} that is going to be deleted.
    */
   public void remove(AbstractReport report) {
-    reports.remove(report);
+    synchronized (reportsByNumber) {
+      if (reports.remove(report)) {
+        removeFromIndexes(report);
+      }
+      if (report instanceof ReportBAG) {
+        reportsByNumber.remove(((ReportBAG) report).getReportNumberFull(), report);
+      }
+    }
     if (getMultiSelectedReports().contains(report)) {
       setSelectedReport(null);
     }
@@ -211,12 +349,71 @@ public class ReportData implements Data {
   }
 
   /**
-   * Returns the {@link List<AbstractReport>} object, which acts as the database of the Layer.
+   * Returns the reports that have been created by the user and have not been uploaded yet.
    *
-   * @return The {@link ReportData} object that stores the database.
+   * @return A List containing the {@link ReportNewBAG} objects.
    */
   public List<AbstractReport> getNewReports() {
-    return getReports().stream().filter(report -> (report instanceof ReportNewBAG)).collect(Collectors.toList());
+    return new ArrayList<>(newReports);
+  }
+
+  /**
+   * @return the number of reports that have been created by the user and have not been uploaded yet
+   */
+  public int getNewReportCount() {
+    return newReports.size();
+  }
+
+  /**
+   * @return the number of downloaded reports
+   */
+  public int getDownloadedReportCount() {
+    return reportsByNumber.size();
+  }
+
+  /**
+   * Returns the downloaded report with the given full report number (<code>meldingsNummerVolledig</code>).
+   *
+   * @param reportNumberFull
+   *          the full report number
+   * @return the report, <code>null</code> if it has not been downloaded
+   */
+  public ReportBAG getReport(String reportNumberFull) {
+    return reportNumberFull == null ? null : reportsByNumber.get(reportNumberFull);
+  }
+
+  /**
+   * @param statusCode
+   *          the status code, for example <code>AFGEROND</code>
+   * @return an unmodifiable view of the downloaded reports with the status code
+   */
+  public Set<ReportBAG> getReportsByStatus(String statusCode) {
+    return reportsByStatus.get(statusCode);
+  }
+
+  /**
+   * @return the number of downloaded reports by status code
+   */
+  public Map<String, Integer> getStatusCounts() {
+    return reportsByStatus.counts();
+  }
+
+  /**
+   * @param sourceMaintainerCode
+   *          the code of the maintainer of the source
+   * @return an unmodifiable view of the downloaded reports about the source of the maintainer
+   */
+  public Set<ReportBAG> getReportsByMaintainer(String sourceMaintainerCode) {
+    return reportsByMaintainer.get(sourceMaintainerCode);
+  }
+
+  /**
+   * @param objectId
+   *          the id of the BAG object
+   * @return an unmodifiable view of the downloaded reports about the object
+   */
+  public Set<ReportBAG> getReportsByObjectId(String objectId) {
+    return reportsByObjectId.get(objectId);
   }
 
   /**
@@ -241,10 +438,56 @@ public class ReportData implements Data {
   /**
    * Returns a Set containing all reports.
    *
-   * @return A Set object containing all reports.
+   * @return An unmodifiable Set object containing all reports, use {@link #remove(AbstractReport)} to remove a report.
    */
   public Set<AbstractReport> getReports() {
-    return reports;
+    return Collections.unmodifiableSet(reports);
+  }
+
+  /**
+   * Returns the downloaded reports within the given bounds.
+   *
+   * @param bounds
+   *          the area
+   * @return A List containing the {@link ReportBAG} objects within the bounds.
+   */
+  public List<ReportBAG> getReports(Bounds bounds) {
+    return index.query(bounds).stream().filter(ReportBAG.class::isInstance).map(ReportBAG.class::cast)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the reports of which the current position is within the given bounds, using a spatial index.
+   *
+   * @param bounds
+   *          the area
+   * @return the reports within the bounds, visible or not
+   */
+  public List<AbstractReport> query(Bounds bounds) {
+    return index.query(bounds);
+  }
+
+  /**
+   * Returns the report closest to a point, using a spatial index.
+   *
+   * @param latLon
+   *          the point
+   * @param radius
+   *          the maximum distance in meters
+   * @return the visible report closest to the point within the radius, <code>null</code> if there is none
+   */
+  public AbstractReport nearest(LatLon latLon, double radius) {
+    return index.nearest(latLon, radius, AbstractReport::isVisible);
+  }
+
+  /**
+   * Updates the spatial index after reports have been moved.
+   *
+   * @param moved
+   *          the reports that have been moved
+   */
+  public void updatePositions(Collection<? extends AbstractReport> moved) {
+    moved.forEach(index::update);
   }
 
   /**
@@ -321,8 +564,16 @@ public class ReportData implements Data {
    */
   public void setReports(Collection<AbstractReport> newReport) {
     synchronized (this) {
-      reports.clear();
-      reports.addAll(newReport);
+      synchronized (reportsByNumber) {
+        reports.clear();
+        reportsByNumber.clear();
+        index.clear();
+        reportsByStatus.clear();
+        reportsByMaintainer.clear();
+        reportsByObjectId.clear();
+        newReports.clear();
+        newReport.forEach(this::put);
+      }
     }
   }
   
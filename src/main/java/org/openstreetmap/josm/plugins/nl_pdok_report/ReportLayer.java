@@ -17,8 +17,11 @@ import java.awt.event.ActionEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -51,11 +54,15 @@ import org.openstreetmap.josm.plugins.nl_pdok_report.gui.ReportFilterDialog;
 import org.openstreetmap.josm.plugins.nl_pdok_report.gui.reportinfo.ReportInfoPanel;
 import org.openstreetmap.josm.plugins.nl_pdok_report.history.ReportRecord;
 import org.openstreetmap.josm.plugins.nl_pdok_report.history.commands.CommandDelete;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.DownloadStatistics;
 import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportDownloader;
 import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportDownloader.DOWNLOAD_MODE;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ViewportDownloadTrigger;
 import org.openstreetmap.josm.plugins.nl_pdok_report.mode.AbstractMode;
 import org.openstreetmap.josm.plugins.nl_pdok_report.mode.JoinMode;
 import org.openstreetmap.josm.plugins.nl_pdok_report.mode.SelectMode;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportUtils;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -65,6 +72,7 @@ import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
 import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * This class represents the layer shown in JOSM. There can only exist one instance of this object.
@@ -222,7 +230,7 @@ public final class ReportLayer extends AbstractModifiableLayer
     clearInstance();
     setMode(null);
     ReportRecord.getInstance().reset();
-    AbstractMode.resetThread();
+    ViewportDownloadTrigger.cancel();
     ReportDownloader.stopAll();
     ReportInfoPanel.getInstance().selectedReportChanged(null, null);
     /*
@@ -244,6 +252,8 @@ public final class ReportLayer extends AbstractModifiableLayer
       // already been removed.
     }
     hideReportWindow();
+    // Frees the rows of collected reports; the store is reset once no report is left
+    ReportStore.getInstance().trim();
     super.destroy();
   }
 
@@ -270,11 +280,9 @@ public final class ReportLayer extends AbstractModifiableLayer
     big.setColor(ReportProperties.BACKGROUND.get());
     Composite comp = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.3f);
     big.setComposite(comp);
-    // Until the report API cannot fetch results within bounds, don't draw the hatched line and background, 
-    //   but we do want the transparent background, so keep the other parts of this function.
-    //big.fillRect(0, 0, 15, 15);
-    //big.setColor(ReportProperties.OUTSIDE_DOWNLOADED_AREA.get());
-    //big.drawLine(0, 15, 15, 0);
+    big.fillRect(0, 0, 15, 15);
+    big.setColor(ReportProperties.OUTSIDE_DOWNLOADED_AREA.get());
+    big.drawLine(0, 15, 15, 0);
     Rectangle r = new Rectangle(0, 0, 15, 15);
     this.hatched = new TexturePaint(bi, r);
   }
@@ -285,12 +293,18 @@ public final class ReportLayer extends AbstractModifiableLayer
     if (MainApplication.getLayerManager().getActiveLayer() == this) {
       // paint remainder
       g.setPaint(this.hatched);
-      g.fill(MapViewGeometryUtil.getNonDownloadedArea(mv, this.data.getBounds()));
+      g.fill(MapViewGeometryUtil.getNonDownloadedArea(mv, this.data.getCoverage().getDownloadedBounds(box)));
     }
 
-    for (AbstractReport reportAbs : this.data.getReports()) {
-      if (reportAbs.isVisible() && mv != null && mv.contains(mv.getPoint(reportAbs.getMovingLatLon()))) {
-        drawReportMarker(g, reportAbs);
+    // Only the reports within the painted area, instead of all of them. The area is widened by half a marker, so a
+    // marker that is partly visible is painted as well.
+    if (mv != null) {
+      final Collection<AbstractReport> reports = box == null ? this.data.getReports()
+        : this.data.query(grow(mv, box, IMG_MARKER_SIZE_SELECTED / 2));
+      for (AbstractReport reportAbs : reports) {
+        if (reportAbs.isVisible()) {
+          drawReportMarker(g, reportAbs);
+        }
       }
     }
     if (this.mode instanceof JoinMode) {
@@ -305,6 +319,23 @@ public final class ReportLayer extends AbstractModifiableLayer
     }
   }
 
+  /**
+   * @param mv
+   *          the map view
+   * @param box
+   *          an area within the map view
+   * @param pixels
+   *          the number of pixels to add on every side
+   * @return the area, widened by the given number of pixels of the map view
+   */
+  private static Bounds grow(final MapView mv, final Bounds box, final int pixels) {
+    final Point min = mv.getPoint(box.getMin());
+    final Point max = mv.getPoint(box.getMax());
+    final Bounds grown = new Bounds(mv.getLatLon(min.x - pixels, min.y + pixels));
+    grown.extend(mv.getLatLon(max.x + pixels, max.y - pixels));
+    return grown;
+  }
+
   /**
    * Draws an image marker onto the given Graphics context.
    * 
@@ -401,13 +432,47 @@ public final class ReportLayer extends AbstractModifiableLayer
 
   @Override
   public Object getInfoComponent() {
-    final long numNew = getData().getReports().stream().filter(i -> i instanceof ReportNewBAG).count();
-    final long numDownloaded = getData().getReports().stream().filter(i -> i instanceof ReportBAG).count();
+    final int numNew = getData().getNewReportCount();
+    final int numDownloaded = getData().getDownloadedReportCount();
     final int numTotal = getData().getReports().size();
-    return new StringBuilder(I18n.tr("Reports layer")).append("\n\n").append(
+    final StringBuilder result = new StringBuilder(I18n.tr("Reports layer")).append("\n\n").append(
       I18n.trn("{0} new report", "{0} new reports", numNew, numNew)
     ).append("\n+ ").append(I18n.trn("{0} downloaded report", "{0} downloaded reports", numDownloaded, numDownloaded))
-      .append("\n= ").append(I18n.trn("{0} report in total", "{0} reports in total", numTotal, numTotal)).toString();
+      .append("\n= ").append(I18n.trn("{0} report in total", "{0} reports in total", numTotal, numTotal));
+    new TreeMap<>(getData().getStatusCounts()).forEach(
+      (statusCode, count) -> result.append("\n  ").append(statusCode).append(": ").append(count)
+    );
+    final ReportStore store = ReportStore.getInstance();
+    result.append("\n").append(
+      I18n.tr(
+        "{0} reports in memory, sharing {1} distinct attribute values, about {2} saved", store.size(),
+        store.getDictionary().size(), Utils.getSizeString(store.getSavedBytes(), Locale.getDefault())
+      )
+    );
+    result.append("\n\n").append(
+      I18n.tr(
+        "{0} received ({1} uncompressed)", Utils.getSizeString(ReportHttpClient.getReceivedBytes(), Locale.getDefault()),
+        Utils.getSizeString(ReportHttpClient.getDecodedBytes(), Locale.getDefault())
+      )
+    );
+    final int numTiles = DownloadStatistics.getDownloadedTiles();
+    if (numTiles > 0) {
+      result.append("\n").append(
+        I18n.trn(
+          "{0} tile downloaded ({1} failed), {2} ms on average", "{0} tiles downloaded ({1} failed), {2} ms on average",
+          numTiles, numTiles, DownloadStatistics.getFailedTiles(), DownloadStatistics.getAverageMillis()
+        )
+      ).append("\n").append(I18n.tr("Slowest recent downloads:"));
+      for (DownloadStatistics.Timing timing : DownloadStatistics.getSlowest(3)) {
+        result.append("\n  ").append(
+          I18n.tr(
+            "tile {0}: {1} ms, {2} reports, {3}", timing.getTile(), timing.getMillis(), timing.getFeatures(),
+            Utils.getSizeString(timing.getBytes(), Locale.getDefault())
+          )
+        );
+      }
+    }
+    return result.toString();
   }
 
   @Override
@@ -474,7 +539,7 @@ public final class ReportLayer extends AbstractModifiableLayer
 
   @Override
   public boolean requiresUploadToServer() {
-    return !this.getData().getNewReports().isEmpty();
+    return this.getData().getNewReportCount() > 0;
   }
 
   /**
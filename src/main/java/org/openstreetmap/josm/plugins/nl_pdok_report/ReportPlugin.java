@@ -11,6 +11,7 @@ import org.openstreetmap.josm.plugins.PluginException;
 import org.openstreetmap.josm.plugins.PluginInformation;
 import org.openstreetmap.josm.plugins.nl_pdok_report.actions.ReportDownloadAction;
 import org.openstreetmap.josm.plugins.nl_pdok_report.actions.ReportDownloadViewAction;
+import org.openstreetmap.josm.plugins.nl_pdok_report.actions.ReportImportDumpAction;
 import org.openstreetmap.josm.plugins.nl_pdok_report.actions.ReportUploadAction;
 import org.openstreetmap.josm.plugins.nl_pdok_report.actions.ReportZoomAction;
 import org.openstreetmap.josm.plugins.nl_pdok_report.gui.ReportNewDialog;
@@ -40,6 +41,7 @@ public class ReportPlugin extends Plugin {
       MainMenu.add(MainApplication.getMenu().imagerySubMenu, new ReportDownloadAction(), false);
       MainMenu.add(MainApplication.getMenu().viewMenu, ZOOM_ACTION, false, 15);
       MainMenu.add(MainApplication.getMenu().fileMenu, new ReportDownloadViewAction(), false, 14);
+      MainMenu.add(MainApplication.getMenu().fileMenu, new ReportImportDumpAction(), false, 14);
       MainMenu.add(MainApplication.getMenu().fileMenu, UPLOAD_ACTION, false, 14);
     }
   }
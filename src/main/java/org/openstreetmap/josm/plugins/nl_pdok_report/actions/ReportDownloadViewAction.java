@@ -41,7 +41,7 @@ public class ReportDownloadViewAction extends JosmAction implements ValueChangeL
 
   @Override
   public void actionPerformed(ActionEvent arg0) {
-    ReportDownloader.downloadVisibleArea();
+    ReportDownloader.downloadVisibleArea(true);
   }
 
   @Override
@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.actions;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.PleaseWaitRunnable;
+import org.openstreetmap.josm.gui.widgets.AbstractFileChooser;
+import org.openstreetmap.josm.gui.widgets.FileChooserManager;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportPlugin;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.dump.ReportDumpReader;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.tools.I18n;
+import org.openstreetmap.josm.tools.ImageProvider;
+import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Imports the reports of a local dump file, for example a snapshot of all reports of the country, into the report
+ * layer. See {@link ReportDumpReader} for the supported formats.
+ *
+ * @author SanderH
+ */
+public class ReportImportDumpAction extends JosmAction {
+  private static final long serialVersionUID = -6081623948216480153L;
+  private static final String DESCRIPTION = I18n.marktr("Import PDOK Reports from file");
+
+  /**
+   * Main constructor.
+   */
+  public ReportImportDumpAction() {
+    super(
+      I18n.tr(DESCRIPTION), new ImageProvider(ReportPlugin.LOGO).setSize(ImageSizes.DEFAULT), I18n.tr(DESCRIPTION),
+      null, false, "reportImportDump", false
+    );
+  }
+
+  @Override
+  public void actionPerformed(ActionEvent e) {
+    final AbstractFileChooser chooser = new FileChooserManager(true, ReportProperties.START_DIR.getKey())
+      .createFileChooser(
+        false, I18n.tr(DESCRIPTION),
+        new ExtensionFileFilter(
+          "geojson,json,ndjson,jsonl,geojsonl,geojsons,gz", "geojson",
+          I18n.tr("Report dumps (*.geojson, *.ndjson, optionally gzipped)")
+        ), JFileChooser.FILES_ONLY
+      ).openFileChooser();
+    if (chooser == null || chooser.getSelectedFile() == null) {
+      return;
+    }
+    if (!ReportLayer.hasInstance() || !MainApplication.getLayerManager().containsLayer(ReportLayer.getInstance())) {
+      MainApplication.getLayerManager().addLayer(ReportLayer.getInstance());
+    }
+    MainApplication.worker.submit(new ImportTask(chooser.getSelectedFile()));
+  }
+
+  @Override
+  protected boolean listenToSelectionChange() {
+    return false;
+  }
+
+  private static class ImportTask extends PleaseWaitRunnable {
+    private final File file;
+    private int imported;
+    private IOException failure;
+
+    ImportTask(final File file) {
+      super(I18n.tr("Importing reports"));
+      this.file = file;
+    }
+
+    @Override
+    protected void realRun() {
+      try {
+        imported = new ReportDumpReader(file, ReportLayer.getInstance().getData(), getProgressMonitor()).read();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+
+    @Override
+    protected void cancel() {
+      // The reader checks the progress monitor and stops by itself
+    }
+
+    @Override
+    protected void finish() {
+      if (failure != null) {
+        Logging.log(Logging.LEVEL_WARN, "Could not import reports from " + file, failure);
+        new Notification(I18n.tr("Could not import reports from {0}: {1}", file.getName(), failure.getMessage()))
+          .setIcon(JOptionPane.ERROR_MESSAGE).setDuration(Notification.TIME_LONG).show();
+      } else {
+        new Notification(I18n.trn("Imported {0} report", "Imported {0} reports", imported, imported))
+          .setIcon(ReportPlugin.LOGO.setSize(ImageSizes.LARGEICON).get()).setDuration(Notification.TIME_DEFAULT).show();
+        ReportLayer.invalidateInstance();
+      }
+    }
+  }
+}
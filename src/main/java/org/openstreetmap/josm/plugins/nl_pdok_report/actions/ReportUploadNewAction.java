@@ -3,6 +3,7 @@ package org.openstreetmap.josm.plugins.nl_pdok_report.actions;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
 import java.io.StringReader;
 import java.util.List;
 
@@ -17,6 +18,7 @@ import org.openstreetmap.josm.plugins.nl_pdok_report.AbstractReport;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportNewBAG;
 import org.openstreetmap.josm.plugins.nl_pdok_report.gui.ReportNewDialog;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportExecutors;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportURL;
@@ -58,7 +60,7 @@ public class ReportUploadNewAction extends JosmAction {
 
   @Override
   public void actionPerformed(ActionEvent event) {
-    new Thread(() -> {
+    ReportExecutors.io().execute(() -> {
       changesetDialog.setUploadPending(true);
       
       REPORT_API reportApi = REPORT_API.fromPrefId(ReportProperties.API_REPORT_USE.get());
@@ -72,21 +74,9 @@ public class ReportUploadNewAction extends JosmAction {
         newReports.forEach((tmpReport) -> {
           ReportNewBAG newReport = ((ReportNewBAG) tmpReport);
 
-          String json = JsonNewReportEncoder.encodeNewReport(newReport).build().toString();
           try
           {
-            MultipartUtility multipart = new MultipartUtility(ReportURL.submitReport(), "UTF-8", ReportProperties.USE_FIDDLER.get());
-            multipart.setRequestProperty("Accept", "application/json");
-            multipart.setRequestProperty("Content-Crs",  ReportURL.getCrs4326());
-            multipart.setRequestProperty("User-Agent", "JOSM");
-            if (reportApi.needsKey()) {
-              multipart.setRequestProperty("apikey", token);
-            }
-            //multipart.addFilePart("files", <file>);
-            multipart.StartStream();
-            multipart.addFormField("melding", json.toString(), "application/json");
-            Logging.info("Sending JSON to " + ReportURL.submitReport() + "\n  " + json);
-            MultiPartResponse response = multipart.finish();
+            MultiPartResponse response = submit(newReport, reportApi, token);
 
             Logging.debug("HTTP request finished with response code " + response.ResponseCode);
             switch (response.ResponseCode)
@@ -147,6 +137,43 @@ public class ReportUploadNewAction extends JosmAction {
         PluginState.notLoggedInToReportDialog();
       }
       changesetDialog.setUploadPending(false);
-    }, "Report submit").start();
+    });
+  }
+
+  /**
+   * Sends a new report to the report API. Does not touch the layer or any dialog, so it can also be used without GUI.
+   *
+   * @param newReport
+   *          the report
+   * @param reportApi
+   *          the report API to which the report is sent
+   * @param token
+   *          the API key, only sent if the report API needs one
+   * @return the response of the API
+   * @throws IOException
+   *           if the report can't be sent, or the API responded with an unexpected status
+   * @throws InterruptedException
+   *           if the thread is interrupted while waiting for a connection
+   */
+  public static MultiPartResponse submit(
+    final ReportNewBAG newReport, final REPORT_API reportApi, final String token
+  ) throws IOException, InterruptedException {
+    String json = JsonNewReportEncoder.encodeNewReport(newReport).build().toString();
+    try (
+      ReportExecutors.HostPermit permit = ReportExecutors.acquire(ReportURL.submitReport());
+      MultipartUtility multipart = new MultipartUtility(ReportURL.submitReport(), "UTF-8", ReportProperties.USE_FIDDLER.get())
+    ) {
+      multipart.setRequestProperty("Accept", "application/json");
+      multipart.setRequestProperty("Content-Crs",  ReportURL.getCrs4326());
+      multipart.setRequestProperty("User-Agent", "JOSM");
+      if (reportApi.needsKey()) {
+        multipart.setRequestProperty("apikey", token);
+      }
+      //multipart.addFilePart("files", <file>);
+      multipart.StartStream();
+      multipart.addFormField("melding", json, "application/json");
+      Logging.info("Sending JSON to " + ReportURL.submitReport() + "\n  " + json);
+      return multipart.finish();
+    }
   }
 }
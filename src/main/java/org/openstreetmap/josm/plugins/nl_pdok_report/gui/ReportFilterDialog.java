@@ -8,7 +8,6 @@ import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.function.Predicate;
 
 import javax.swing.AbstractAction;
@@ -20,11 +19,14 @@ import javax.swing.SpinnerNumberModel;
 
 import org.openstreetmap.josm.gui.SideButton;
 import org.openstreetmap.josm.gui.dialogs.ToggleDialog;
+import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.plugins.nl_pdok_report.AbstractReport;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportDataListener;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportNewBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportDownloader;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportFilter;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
 import org.openstreetmap.josm.tools.ImageProvider;
 
@@ -41,12 +43,6 @@ public final class ReportFilterDialog extends ToggleDialog implements ReportData
 
   private static final String[] TIME_LIST = { tr("Years"), tr("Months"), tr("Days") };
 
-  private static final long[] TIME_FACTOR = new long[] { 31_536_000_000L, // = 365 * 24 * 60 * 60 * 1000 = number of ms
-                                                                          // in a year
-      2_592_000_000L, // = 30 * 24 * 60 * 60 * 1000 = number of ms in a month
-      86_400_000 // = 24 * 60 * 60 * 1000 = number of ms in a day
-  };
-
   private final JCheckBox filterByDateCheckbox;
   /**
    * Spinner to choose the range of dates.
@@ -82,6 +78,8 @@ public final class ReportFilterDialog extends ToggleDialog implements ReportData
 
     this.newReports.setSelected(true);
     this.downloadedReports.setSelected(true);
+    // The saved filter, which is also the one that the first downloads are filtered with
+    loadPreferences();
 
     JPanel panel = new JPanel();
     panel.setLayout(new GridBagLayout());
@@ -131,28 +129,39 @@ public final class ReportFilterDialog extends ToggleDialog implements ReportData
     this.newReports.setSelected(true);
     this.downloadedReports.setSelected(true);
 //    this.user.setText("");
+    loadPreferences();
+    refresh();
+  }
+
+  private void loadPreferences() {
     this.filterByDateCheckbox.setSelected(ReportProperties.FILTER_HIDE_CLOSED.get());
     this.time.setSelectedItem(TIME_LIST[ReportProperties.FILTER_HIDE_PERIOD.get()]);
     this.spinnerModel.setValue(ReportProperties.FILTER_HIDE_NUMBER.get());
-    refresh();
   }
 
   /**
-   * Applies the selected filter.
+   * Applies the selected filter. Can be called from any thread, the controls are only read on the event dispatch
+   * thread, which is also the only thread that sets the {@link ReportFilter#setActive(ReportFilter) active filter}.
    */
-  public synchronized void refresh() {
+  public void refresh() {
+    GuiHelper.runInEDT(this::applyFilter);
+  }
+
+  private void applyFilter() {
     final boolean layerVisible = ReportLayer.hasInstance() && ReportLayer.getInstance().isVisible();
     final boolean newReports = this.newReports.isSelected();
     final boolean downloaded = this.downloadedReports.isSelected();
-    final boolean timeFilter = filterByDateCheckbox.isSelected();
+    final ReportFilter filter = ReportFilter.of(
+      filterByDateCheckbox.isSelected(), spinnerModel.getNumber().doubleValue(), time.getSelectedIndex()
+    );
+    final long now = System.currentTimeMillis();
 
     // This predicate returns true is the image should be made invisible
     Predicate<AbstractReport> shouldHide = report -> {
       if (!layerVisible) {
         return true;
       }
-      if (timeFilter && checkValidTime(report) && report instanceof ReportBAG && 
-        (((ReportBAG)report).getStatusCode().equals("AFGEROND") || ((ReportBAG)report).getStatusCode().equals("AFGEWEZEN"))) {
+      if (report instanceof ReportBAG && !filter.accepts((ReportBAG) report, now)) {
         return true;
       }
       if (!newReports && report instanceof ReportNewBAG) {
@@ -172,22 +181,13 @@ public final class ReportFilterDialog extends ToggleDialog implements ReportData
     }
 
     ReportLayer.invalidateInstance();
-  }
 
-  private boolean checkValidTime(AbstractReport bag) {
-    if (bag instanceof ReportBAG) {
-      ReportBAG feedbackBAG = (ReportBAG) bag;
-      Long currentTime = currentTime();
-      for (int i = 0; i < 3; i++) {
-        if (TIME_LIST[i].equals(time.getSelectedItem()) && feedbackBAG.getReportedAt().getTime() < currentTime
-          - spinnerModel.getNumber().doubleValue() * TIME_FACTOR[i]) {
-          return true;
-        }
-      }
+    // The same filter may be applied by the API, the reports that it let through before are already there
+    if (ReportFilter.setActive(filter) && ReportLayer.hasInstance()) {
+      ReportDownloader.filterWidened();
     }
-    return false;
   }
-  
+
   /**
    * Save the selected filter settings.
    */
@@ -197,11 +197,6 @@ public final class ReportFilterDialog extends ToggleDialog implements ReportData
     ReportProperties.FILTER_HIDE_PERIOD.put(time.getSelectedIndex());
   }
   
-  private static long currentTime() {
-    Calendar cal = Calendar.getInstance();
-    return cal.getTimeInMillis();
-  }
-
   /**
    * Destroys the unique instance of the class.
    */
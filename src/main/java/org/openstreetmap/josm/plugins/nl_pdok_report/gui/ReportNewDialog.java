@@ -173,7 +173,7 @@ public final class ReportNewDialog extends ToggleDialog implements ReportDataLis
       rootComponent.remove(uploadPendingProgress);
     }
     uploadButton.setEnabled(
-      ReportLayer.hasInstance() && !ReportLayer.getInstance().getData().getNewReports().isEmpty()
+      ReportLayer.hasInstance() && ReportLayer.getInstance().getData().getNewReportCount() > 0
     );
     rootComponent.revalidate();
     rootComponent.repaint();
@@ -9,8 +9,7 @@ import java.awt.GridBagLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
-import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.util.AbstractMap;
 
 import javax.swing.AbstractAction;
 import javax.swing.BorderFactory;
@@ -35,6 +34,8 @@ import org.openstreetmap.josm.gui.preferences.TabPreferenceSetting;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportPlugin;
 import org.openstreetmap.josm.plugins.nl_pdok_report.gui.boilerplate.ReportButton;
 import org.openstreetmap.josm.plugins.nl_pdok_report.gui.reportinfo.WebLinkAction;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportExecutors;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
 import org.openstreetmap.josm.plugins.nl_pdok_report.oauth.ReportLoginListener;
 import org.openstreetmap.josm.plugins.nl_pdok_report.oauth.ReportUser;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportColorScheme;
@@ -250,12 +251,12 @@ public class ReportPreferenceSetting implements SubPreferenceSetting, ReportLogi
         .setIconAt(gui.getDisplayPreference().getTabPane().getTabCount() - 1, ReportPlugin.LOGO.setSize(12, 12).get());
     }
 
-    new Thread(() -> {
+    ReportExecutors.io().execute(() -> {
       String username = ReportUser.getApiKey();
       if (username != null) {
         SwingUtilities.invokeLater(() -> onLogin(ReportUser.getApiKey()));
       }
-    }).start();
+    });
   }
   
   public void enableControls()
@@ -362,29 +363,27 @@ public class ReportPreferenceSetting implements SubPreferenceSetting, ReportLogi
         new Notification(I18n.tr("Please enter an API key first in the field below")).setDuration(Notification.TIME_DEFAULT).show();
         return;
       }
-      try
-      {
-        HttpURLConnection connection = (HttpURLConnection)ReportURL.validateApiURL(REPORT_API.PDOK_PRODUCTION).openConnection();
+      final String key = apiKey.getText();
+      ReportHttpClient.executeAsync(ReportURL.validateApiURL(REPORT_API.PDOK_PRODUCTION), key, connection -> {
         connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("User-Agent", "JOSM");
-        connection.setRequestProperty("apikey", apiKey.getText());
-        connection.connect();
-
-        switch (connection.getResponseCode())
+        return new AbstractMap.SimpleImmutableEntry<>(connection.getResponseCode(), connection.getResponseMessage());
+      }).whenComplete((response, e) -> SwingUtilities.invokeLater(() -> {
+        if (e != null) {
+          Logging.error(e);
+          return;
+        }
+        switch (response.getKey())
         {
         case 200:
         case 204:
-          onLogin(apiKey.getText());
+          onLogin(key);
           break;
         case 400:
         case 401: 
-          new Notification(I18n.tr("An error occurred during validation: ''{0}''", connection.getResponseMessage())).setDuration(Notification.TIME_DEFAULT).show();
+          new Notification(I18n.tr("An error occurred during validation: ''{0}''", response.getValue())).setDuration(Notification.TIME_DEFAULT).show();
           break;
         }
-      } 
-      catch (IOException e) {
-        Logging.error(e); 
-      }
+      }));
     }
   }
 
@@ -413,29 +412,27 @@ public class ReportPreferenceSetting implements SubPreferenceSetting, ReportLogi
         new Notification(I18n.tr("Please enter an acceptance API key first in the field below")).setDuration(Notification.TIME_DEFAULT).show();
         return;
       }
-      try
-      {
-        HttpURLConnection connection = (HttpURLConnection)ReportURL.validateApiURL(REPORT_API.PDOK_ACCEPTANCE).openConnection();
+      final String key = apiKeyAct.getText();
+      ReportHttpClient.executeAsync(ReportURL.validateApiURL(REPORT_API.PDOK_ACCEPTANCE), key, connection -> {
         connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("User-Agent", "JOSM");
-        connection.setRequestProperty("apikey", apiKeyAct.getText());
-        connection.connect();
-
-        switch (connection.getResponseCode())
+        return new AbstractMap.SimpleImmutableEntry<>(connection.getResponseCode(), connection.getResponseMessage());
+      }).whenComplete((response, e) -> SwingUtilities.invokeLater(() -> {
+        if (e != null) {
+          Logging.error(e);
+          return;
+        }
+        switch (response.getKey())
         {
         case 200:
         case 204:
-          onLoginAct(apiKeyAct.getText());
+          onLoginAct(key);
           break;
         case 400:
         case 401: 
-          new Notification(I18n.tr("An error occurred during validation: ''{0}''", connection.getResponseMessage())).setDuration(Notification.TIME_DEFAULT).show();
+          new Notification(I18n.tr("An error occurred during validation: ''{0}''", response.getValue())).setDuration(Notification.TIME_DEFAULT).show();
           break;
         }
-      } 
-      catch (IOException e) {
-        Logging.error(e); 
-      }
+      }));
     }
   }
 }
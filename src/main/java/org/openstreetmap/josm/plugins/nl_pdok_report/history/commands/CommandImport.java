@@ -33,10 +33,7 @@ public class CommandImport extends ReportExecutableCommand {
 
   @Override
   public void undo() {
-    for (AbstractReport img : this.images) {
-      ReportLayer.getInstance().getData().getReports().remove(img);
-    }
-    ReportLayer.invalidateInstance();
+    ReportLayer.getInstance().getData().remove(this.images);
   }
 
   @Override
@@ -40,6 +40,7 @@ public class CommandMove extends ReportCommand {
       image.move(-this.x, -this.y);
       image.stopMoving();
     }
+    ReportLayer.getInstance().getData().updatePositions(this.images);
     ReportLayer.invalidateInstance();
   }
 
@@ -49,6 +50,7 @@ public class CommandMove extends ReportCommand {
       image.move(this.x, this.y);
       image.stopMoving();
     }
+    ReportLayer.getInstance().getData().updatePositions(this.images);
     ReportLayer.invalidateInstance();
   }
 
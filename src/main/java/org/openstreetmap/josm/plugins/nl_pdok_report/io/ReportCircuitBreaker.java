@@ -0,0 +1,130 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Circuit breaker for one {@link REPORT_API} environment. After a number of consecutive failures the breaker opens and
+ * requests fail right away, instead of piling up on an API that is down. After a while a single trial request is let
+ * through, if it succeeds the breaker closes again.
+ *
+ * @author SanderH
+ */
+public final class ReportCircuitBreaker {
+  /** Number of consecutive failures after which the breaker opens. */
+  private static final int FAILURE_THRESHOLD = 5;
+  /** Number of milliseconds the breaker stays open before a trial request is let through. */
+  private static final long OPEN_TIME = 30_000;
+
+  private static final Map<REPORT_API, ReportCircuitBreaker> BREAKERS = new EnumMap<>(REPORT_API.class);
+
+  private final REPORT_API reportApi;
+  private final long openTime;
+  private int failures;
+  /** Epoch time at which the breaker opened, 0 if it is closed. */
+  private long openedAt;
+  /** The thread that sends the trial request, <code>null</code> if no trial request is running. */
+  private Thread trialThread;
+
+  private ReportCircuitBreaker(final REPORT_API reportApi) {
+    this(reportApi, OPEN_TIME);
+  }
+
+  /**
+   * @param reportApi
+   *          the report API environment
+   * @param openTime
+   *          number of milliseconds the breaker stays open before a trial request is let through
+   */
+  ReportCircuitBreaker(final REPORT_API reportApi, final long openTime) {
+    this.reportApi = reportApi;
+    this.openTime = openTime;
+  }
+
+  /**
+   * @param reportApi
+   *          the report API environment
+   * @return the circuit breaker of the given environment
+   */
+  public static ReportCircuitBreaker getInstance(final REPORT_API reportApi) {
+    synchronized (BREAKERS) {
+      return BREAKERS.computeIfAbsent(reportApi, ReportCircuitBreaker::new);
+    }
+  }
+
+  /**
+   * Checks if a request may be sent. When the breaker has been open long enough, only the first caller gets
+   * permission, as trial request.
+   *
+   * @return true if the request may be sent; false if it should fail right away
+   */
+  public synchronized boolean allowRequest() {
+    if (openedAt == 0) {
+      return true;
+    }
+    if (trialThread == null && System.currentTimeMillis() - openedAt >= openTime) {
+      trialThread = Thread.currentThread();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Records a successful request, which closes the breaker.
+   */
+  public synchronized void recordSuccess() {
+    if (openedAt != 0) {
+      Logging.info("The " + reportApi.getLabel() + " report API is available again");
+    }
+    failures = 0;
+    openedAt = 0;
+    trialThread = null;
+  }
+
+  /**
+   * Records that the calling thread stopped without a result, for example because the download was cancelled. If it
+   * was sending the trial request, another trial request is let through, the breaker stays open.
+   */
+  public synchronized void recordAbandoned() {
+    if (trialThread == Thread.currentThread()) {
+      trialThread = null;
+    }
+  }
+
+  /**
+   * Records a failed request.
+   *
+   * @return true if the breaker opened because of this failure
+   */
+  public synchronized boolean recordFailure() {
+    failures++;
+    if (trialThread != null) {
+      // The trial request failed, stay open for another period
+      trialThread = null;
+      openedAt = System.currentTimeMillis();
+      return false;
+    }
+    if (openedAt == 0 && failures >= FAILURE_THRESHOLD) {
+      openedAt = System.currentTimeMillis();
+      Logging.warn(
+        String.format(
+          "The %s report API failed %d times in a row, not sending requests for %d seconds", reportApi.getLabel(),
+          failures, openTime / 1000
+        )
+      );
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the breaker is open, so requests fail right away
+   */
+  public synchronized boolean isOpen() {
+    return openedAt != 0;
+  }
+}
@@ -0,0 +1,168 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io;
+
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Creates the threads on which the plugin does its blocking I/O (downloads, uploads and validation of API keys).
+ *
+ * <p>
+ * On Java 21 and newer the tasks run on virtual threads, unless {@link ReportProperties#VIRTUAL_THREADS} is disabled.
+ * On older versions a small pool of platform threads is used. The plugin is compiled for Java 8, so virtual threads are
+ * created through reflection.
+ * </p>
+ *
+ * <p>
+ * Independent of the kind of threads, the number of simultaneous requests to one host is limited to
+ * {@link ReportProperties#MAX_CONNECTIONS_PER_HOST}. Hold a {@link HostPermit} while a request is running.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportExecutors {
+  /** True if the JVM supports virtual threads. */
+  private static final boolean VIRTUAL_THREADS_AVAILABLE = newVirtualThreadFactory("report-probe-") != null;
+
+  private static final Map<String, Semaphore> HOST_PERMITS = new ConcurrentHashMap<>();
+
+  private static ExecutorService io;
+
+  private ReportExecutors() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * A permit to send a request to a host, release it by closing it.
+   */
+  public static final class HostPermit implements AutoCloseable {
+    private final Semaphore semaphore;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    HostPermit(final Semaphore semaphore) {
+      this.semaphore = semaphore;
+    }
+
+    @Override
+    public void close() {
+      if (released.compareAndSet(false, true)) {
+        semaphore.release();
+      }
+    }
+  }
+
+  /**
+   * @return true if blocking I/O runs on virtual threads
+   */
+  public static boolean isVirtual() {
+    return VIRTUAL_THREADS_AVAILABLE && ReportProperties.VIRTUAL_THREADS.get();
+  }
+
+  /**
+   * @param name
+   *          the prefix of the names of the threads, a sequence number is appended
+   * @return a factory for virtual threads if they are enabled, otherwise a factory for platform threads
+   */
+  public static ThreadFactory newThreadFactory(final String name) {
+    if (isVirtual()) {
+      final ThreadFactory factory = newVirtualThreadFactory(name);
+      if (factory != null) {
+        return factory;
+      }
+    }
+    return Utils.newThreadFactory(name + "%d", Thread.NORM_PRIORITY);
+  }
+
+  /**
+   * Creates an executor for blocking I/O. With virtual threads every task gets its own thread, the concurrency is
+   * limited by the {@link HostPermit}s. Otherwise a pool of at most the given number of threads is used.
+   *
+   * @param name
+   *          the prefix of the names of the threads
+   * @param platformThreads
+   *          the maximum number of platform threads, if virtual threads are not used
+   * @return the executor
+   */
+  public static ExecutorService newExecutor(final String name, final int platformThreads) {
+    if (isVirtual()) {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+          .invoke(null, newThreadFactory(name));
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        Logging.log(Logging.LEVEL_WARN, "Could not create executor with virtual threads, using platform threads", e);
+      }
+    }
+    final ThreadPoolExecutor result = new ThreadPoolExecutor(
+      platformThreads, platformThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      Utils.newThreadFactory(name + "%d", Thread.NORM_PRIORITY)
+    );
+    result.allowCoreThreadTimeOut(true);
+    return result;
+  }
+
+  /**
+   * Returns the number of threads of a pool that runs requests to a single host. With virtual threads the pool size is
+   * the per-host limit, as threads are cheap. Otherwise it is the given number of platform threads.
+   *
+   * @param platformThreads
+   *          the number of platform threads, if virtual threads are not used
+   * @return the pool size
+   */
+  public static int getPoolSize(final int platformThreads) {
+    return isVirtual() ? Math.max(1, ReportProperties.MAX_CONNECTIONS_PER_HOST.get()) : platformThreads;
+  }
+
+  /**
+   * @return the shared executor for uploads, validation and other one-off blocking I/O
+   */
+  public static synchronized ExecutorService io() {
+    if (io == null) {
+      io = newExecutor("report-io-", 4);
+    }
+    return io;
+  }
+
+  /**
+   * Waits until a request to the host of the given URL may be sent.
+   *
+   * @param url
+   *          the URL of the request
+   * @return the permit, which must be closed when the request has finished
+   * @throws InterruptedException
+   *           if the thread is interrupted while waiting
+   */
+  public static HostPermit acquire(final URL url) throws InterruptedException {
+    final Semaphore semaphore = HOST_PERMITS.computeIfAbsent(
+      url.getHost().toLowerCase(Locale.ROOT),
+      host -> new Semaphore(Math.max(1, ReportProperties.MAX_CONNECTIONS_PER_HOST.get()), true)
+    );
+    semaphore.acquire();
+    return new HostPermit(semaphore);
+  }
+
+  private static ThreadFactory newVirtualThreadFactory(final String name) {
+    try {
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      final Object namedBuilder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(namedBuilder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Java 20 or older, or virtual threads are a preview feature that is not enabled
+      return null;
+    }
+  }
+}
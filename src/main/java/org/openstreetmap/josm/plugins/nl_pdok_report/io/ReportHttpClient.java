@@ -0,0 +1,489 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.MultipartUtility;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * The single transport through which all traffic to the report API goes. Every connection gets the same headers,
+ * timeouts and (for debugging) proxy settings.
+ *
+ * <p>
+ * The connections are kept alive and reused by the JDK, as long as the response of each request is read completely and
+ * closed with {@link #release(URLConnection)}, instead of calling {@link HttpURLConnection#disconnect()}. This way only
+ * the first request to the API pays for the TLS handshake.
+ * </p>
+ *
+ * <p>
+ * Responses are requested with gzip or deflate compression. Use {@link #getInputStream(HttpURLConnection)} to read a
+ * response, it decompresses the body while it is read and keeps count of the transferred bytes.
+ * </p>
+ *
+ * <p>
+ * A request that is running on another thread can be stopped with {@link #abort(Thread)}, which closes its connection
+ * so a blocking read returns right away.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportHttpClient {
+  private static final String USER_AGENT = "JOSM";
+  private static final String API_VERSION = "1.0.0";
+  private static final Proxy FIDDLER_PROXY = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("127.0.0.1", 8888));
+
+  private static final String ACCEPT_ENCODING = "gzip, deflate";
+  /** Delay before the first retry of a failed request, in milliseconds. Doubled for every next retry. */
+  private static final long BACKOFF_BASE = 1_000;
+  /** Maximum delay between retries, in milliseconds. */
+  private static final long BACKOFF_MAX = 60_000;
+
+  /** Total number of bytes received from the API, as transferred over the network. */
+  private static final AtomicLong receivedBytes = new AtomicLong();
+  /** Total number of bytes received from the API, after decompression. */
+  private static final AtomicLong decodedBytes = new AtomicLong();
+  /** The connection that each thread has opened and not released yet. */
+  private static final Map<Thread, HttpURLConnection> ACTIVE = new ConcurrentHashMap<>();
+
+  private ReportHttpClient() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * A request that is executed on a connection and produces a result.
+   *
+   * @param <T>
+   *          the type of the result
+   */
+  @FunctionalInterface
+  public interface Request<T> {
+    /**
+     * @param connection
+     *          the opened connection
+     * @return the result of the request
+     * @throws IOException
+     *           if the request fails
+     */
+    T execute(HttpURLConnection connection) throws IOException;
+  }
+
+  /**
+   * Opens a connection to the given URL, using the Fiddler proxy if {@link ReportProperties#USE_FIDDLER} is set.
+   *
+   * @param url
+   *          the URL
+   * @param apiKey
+   *          the API key that is sent with the request, or <code>null</code> if the API does not need a key
+   * @return the connection, not yet connected
+   * @throws IOException
+   *           if the connection can't be opened
+   */
+  public static HttpURLConnection openConnection(final URL url, final String apiKey) throws IOException {
+    return openConnection(url, apiKey, ReportProperties.USE_FIDDLER.get());
+  }
+
+  /**
+   * Opens a connection to the given URL.
+   *
+   * @param url
+   *          the URL
+   * @param apiKey
+   *          the API key that is sent with the request, or <code>null</code> if the API does not need a key
+   * @param useFiddlerProxy
+   *          use local Fiddler proxy for debugging
+   * @return the connection, not yet connected
+   * @throws IOException
+   *           if the connection can't be opened
+   */
+  public static HttpURLConnection openConnection(
+    final URL url, final String apiKey, final boolean useFiddlerProxy
+  ) throws IOException {
+    final URLConnection con;
+    if (useFiddlerProxy) {
+      MultipartUtility.TrustFiddlerSSL();
+      con = url.openConnection(FIDDLER_PROXY);
+    } else {
+      con = url.openConnection();
+    }
+    if (!(con instanceof HttpURLConnection)) {
+      throw new IOException("Not an HTTP URL: " + url);
+    }
+    con.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(ReportProperties.HTTP_CONNECT_TIMEOUT.get()));
+    con.setReadTimeout((int) TimeUnit.SECONDS.toMillis(ReportProperties.HTTP_READ_TIMEOUT.get()));
+    con.setUseCaches(false);
+    con.setRequestProperty("User-Agent", USER_AGENT);
+    con.setRequestProperty("API-Version", API_VERSION);
+    con.setRequestProperty("Accept-Encoding", ACCEPT_ENCODING);
+    if (apiKey != null) {
+      con.setRequestProperty("apikey", apiKey);
+    }
+    ACTIVE.put(Thread.currentThread(), (HttpURLConnection) con);
+    return (HttpURLConnection) con;
+  }
+
+  /**
+   * Returns the body of the response, decompressed according to its <code>Content-Encoding</code>. The body is
+   * decompressed while it is read, it is never buffered as a whole.
+   *
+   * @param con
+   *          the connection
+   * @return the decompressed response body
+   * @throws IOException
+   *           if the response can't be read, for example because the server responded with an error
+   */
+  public static ResponseStream getInputStream(final HttpURLConnection con) throws IOException {
+    return decode(con, con.getInputStream());
+  }
+
+  /**
+   * Returns the body of an error response, decompressed according to its <code>Content-Encoding</code>.
+   *
+   * @param con
+   *          the connection
+   * @return the decompressed body of the error response, or <code>null</code> if there is none
+   * @throws IOException
+   *           if the compressed body can't be read
+   */
+  public static ResponseStream getErrorStream(final HttpURLConnection con) throws IOException {
+    final InputStream in = con.getErrorStream();
+    return in == null ? null : decode(con, in);
+  }
+
+  private static ResponseStream decode(final HttpURLConnection con, final InputStream in) throws IOException {
+    final CountingInputStream raw = new CountingInputStream(in, receivedBytes);
+    final String encoding = con.getContentEncoding() == null ? "" : con.getContentEncoding().trim().toLowerCase(Locale.ROOT);
+    final InputStream decoded;
+    if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+      decoded = new GZIPInputStream(raw, 8192);
+    } else if ("deflate".equals(encoding)) {
+      decoded = inflate(new BufferedInputStream(raw));
+    } else {
+      decoded = raw;
+    }
+    return new ResponseStream(decoded, raw);
+  }
+
+  /**
+   * "deflate" should be zlib wrapped (RFC 9110), but some servers send a raw deflate stream. The zlib header is
+   * recognized by its compression method and checksum.
+   */
+  private static InputStream inflate(final BufferedInputStream in) throws IOException {
+    in.mark(2);
+    final int b0 = in.read();
+    final int b1 = in.read();
+    in.reset();
+    final boolean zlib = b0 >= 0 && b1 >= 0 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+    final Inflater inflater = new Inflater(!zlib);
+    return new InflaterInputStream(in, inflater, 8192) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          // Not done by InflaterInputStream for an Inflater that has been passed in
+          inflater.end();
+        }
+      }
+    };
+  }
+
+  /**
+   * @param con
+   *          the connection, after the response has been received
+   * @return true if the request failed for a reason that may be gone when it is retried (rate limiting or a server
+   *         error)
+   * @throws IOException
+   *           if the response code can't be read
+   */
+  public static boolean isRetryable(final HttpURLConnection con) throws IOException {
+    final int code = con.getResponseCode();
+    return code == 429 || code == HttpURLConnection.HTTP_UNAVAILABLE || code == HttpURLConnection.HTTP_BAD_GATEWAY
+      || code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT || code == HttpURLConnection.HTTP_INTERNAL_ERROR;
+  }
+
+  /**
+   * Determines how long to wait before retrying a request. A <code>Retry-After</code> header of the response (in
+   * seconds or as HTTP date) is honoured, otherwise the delay grows exponentially with random jitter, so clients that
+   * failed at the same moment don't retry at the same moment.
+   *
+   * @param con
+   *          the connection of the failed request, or <code>null</code> if no response was received
+   * @param attempt
+   *          the number of the failed attempt, starting at 0
+   * @return the delay in milliseconds
+   */
+  public static long getRetryDelay(final HttpURLConnection con, final int attempt) {
+    if (con != null) {
+      final String retryAfter = con.getHeaderField("Retry-After");
+      if (retryAfter != null) {
+        try {
+          return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+          final long date = con.getHeaderFieldDate("Retry-After", 0);
+          if (date > 0) {
+            return Math.max(0, date - System.currentTimeMillis());
+          }
+        }
+      }
+    }
+    final long delay = Math.min(BACKOFF_MAX, BACKOFF_BASE << Math.min(attempt, 16));
+    // "Equal jitter": at least half of the delay, so retries don't come too quick
+    return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+  }
+
+  /**
+   * @return the total number of bytes received from the API over the network
+   */
+  public static long getReceivedBytes() {
+    return receivedBytes.get();
+  }
+
+  /**
+   * @return the total number of bytes received from the API after decompression
+   */
+  public static long getDecodedBytes() {
+    return decodedBytes.get();
+  }
+
+  /**
+   * Executes a request on a connection to the given URL and releases the connection afterwards.
+   *
+   * @param <T>
+   *          the type of the result
+   * @param url
+   *          the URL
+   * @param apiKey
+   *          the API key that is sent with the request, or <code>null</code> if the API does not need a key
+   * @param request
+   *          the request
+   * @return the result of the request
+   * @throws IOException
+   *           if the request fails
+   */
+  public static <T> T execute(final URL url, final String apiKey, final Request<T> request) throws IOException {
+    try (ReportExecutors.HostPermit permit = ReportExecutors.acquire(url)) {
+      final HttpURLConnection con = openConnection(url, apiKey);
+      try {
+        return request.execute(con);
+      } finally {
+        release(con);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a connection to " + url.getHost());
+    }
+  }
+
+  /**
+   * Executes a request asynchronously, see {@link #execute(URL, String, Request)}.
+   *
+   * @param <T>
+   *          the type of the result
+   * @param url
+   *          the URL
+   * @param apiKey
+   *          the API key that is sent with the request, or <code>null</code> if the API does not need a key
+   * @param request
+   *          the request
+   * @return a future that completes with the result of the request, or exceptionally with the {@link IOException} (or
+   *         other exception) of the request
+   */
+  public static <T> CompletableFuture<T> executeAsync(final URL url, final String apiKey, final Request<T> request) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return execute(url, apiKey, request);
+      } catch (IOException e) {
+        throw new CompletionException(e);
+      }
+    }, ReportExecutors.io());
+  }
+
+  /**
+   * Closes the connection that the given thread is using, if any. The request of that thread fails with an
+   * {@link IOException}, also when it is blocked reading the response.
+   *
+   * @param thread
+   *          the thread of which the request is aborted
+   */
+  public static void abort(final Thread thread) {
+    final HttpURLConnection con = ACTIVE.remove(thread);
+    if (con != null) {
+      Logging.debug("Aborting request to " + con.getURL());
+      con.disconnect();
+    }
+  }
+
+  /**
+   * Reads the remainder of the response and closes it, so the underlying connection can be reused for the next
+   * request. Never throws, failing to release a connection only means it can't be reused. If the current thread has
+   * been interrupted, the connection is closed instead, so a cancelled download does not read the rest of the
+   * response.
+   *
+   * @param con
+   *          the connection, may be <code>null</code>
+   */
+  public static void release(final URLConnection con) {
+    if (!(con instanceof HttpURLConnection)) {
+      return;
+    }
+    ACTIVE.remove(Thread.currentThread(), con);
+    if (Thread.currentThread().isInterrupted()) {
+      ((HttpURLConnection) con).disconnect();
+      return;
+    }
+    try {
+      drain(con.getInputStream());
+    } catch (IOException e) {
+      // An error response, the body is in the error stream
+      try {
+        drain(((HttpURLConnection) con).getErrorStream());
+      } catch (IOException e2) {
+        Logging.trace(e2);
+      }
+    }
+  }
+
+  /**
+   * Closes a connection of which the request has not been sent, without sending it. Use {@link #release(URLConnection)}
+   * for a connection of which the response has been read.
+   *
+   * @param con
+   *          the connection, may be <code>null</code>
+   */
+  public static void discard(final URLConnection con) {
+    if (con instanceof HttpURLConnection) {
+      ACTIVE.remove(Thread.currentThread(), con);
+      ((HttpURLConnection) con).disconnect();
+    }
+  }
+
+  private static void drain(final InputStream in) throws IOException {
+    if (in == null) {
+      return;
+    }
+    try (InputStream stream = in) {
+      final byte[] buffer = new byte[4096];
+      while (stream.read(buffer) >= 0) {
+        // discard
+      }
+    }
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    /** Also counts the bytes, so the totals are up to date while a response is being read. */
+    private final AtomicLong total;
+    private long count;
+
+    CountingInputStream(final InputStream in, final AtomicLong total) {
+      super(in);
+      this.total = total;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = super.read();
+      if (b >= 0) {
+        add(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      final int n = super.read(b, off, len);
+      if (n > 0) {
+        add(n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      final long skipped = super.skip(n);
+      add(skipped);
+      return skipped;
+    }
+
+    private void add(final long n) {
+      count += n;
+      total.addAndGet(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
+
+  /**
+   * The decompressed body of a response, which knows how many bytes have been transferred for it. Reading fails with an
+   * {@link InterruptedIOException} once the reading thread has been interrupted, so a cancelled download stops in the
+   * middle of the response.
+   */
+  public static final class ResponseStream extends CountingInputStream {
+    private final CountingInputStream raw;
+
+    ResponseStream(final InputStream decoded, final CountingInputStream raw) {
+      super(decoded, decodedBytes);
+      this.raw = raw;
+    }
+
+    @Override
+    public int read() throws IOException {
+      checkInterrupted();
+      return super.read();
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      checkInterrupted();
+      return super.read(b, off, len);
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+      if (Thread.currentThread().isInterrupted()) {
+        throw new InterruptedIOException("The download has been cancelled");
+      }
+    }
+
+    /**
+     * @return the number of bytes that have been received over the network so far
+     */
+    public long getReceivedBytes() {
+      return raw.getCount();
+    }
+
+    /**
+     * @return the number of bytes that have been read after decompression so far
+     */
+    public long getDecodedBytes() {
+      return getCount();
+    }
+  }
+}
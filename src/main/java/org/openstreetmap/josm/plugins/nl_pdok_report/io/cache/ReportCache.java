@@ -0,0 +1,387 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportFilter;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Stores the decoded reports of each downloaded {@link ReportTile} in a compact binary file in the JOSM cache
+ * directory, so the reports of the previous session can be shown right away while they are refreshed in the
+ * background. A file is read into memory in one go instead of being memory-mapped: a mapping keeps the file open until
+ * it is garbage collected, and an open file cannot be deleted or replaced on Windows.
+ *
+ * <p>
+ * Every file starts with a header containing a magic number, the format version, the tile, the time of the download
+ * and the registration time from which the closed reports are included. Files with an unknown version are ignored
+ * and deleted, so a change of the format can never lead to garbage being read. When the total size of the cache
+ * exceeds {@link ReportProperties#CACHE_MAX_SIZE}, the least recently used files are evicted.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportCache {
+  /** "NLRP" */
+  private static final int MAGIC = 0x4E4C5250;
+  /** Increase when the format of the file changes. */
+  private static final int VERSION = 2;
+  private static final String EXTENSION = ".bin";
+  private static final long NO_VALUE = Long.MIN_VALUE;
+  /** Position of the download time in the header, after the magic number, the version and the tile. */
+  private static final long TIMES_OFFSET = 20;
+
+  /** Approximate total size of the cache in bytes, -1 if not yet determined. */
+  private static final AtomicLong size = new AtomicLong(-1);
+
+  private ReportCache() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * Reports of a tile as they were read from the cache.
+   */
+  public static final class Entry {
+    private final long downloadedAt;
+    private final long closedSince;
+    private final List<ReportBAG> reports;
+
+    Entry(final long downloadedAt, final long closedSince, final List<ReportBAG> reports) {
+      this.downloadedAt = downloadedAt;
+      this.closedSince = closedSince;
+      this.reports = reports;
+    }
+
+    /**
+     * @return the Epoch time at which the reports were downloaded
+     */
+    public long getDownloadedAt() {
+      return downloadedAt;
+    }
+
+    /**
+     * @return the registration time from which the closed reports of the tile are included,
+     *         {@link ReportFilter#ALL} if all of them are
+     */
+    public long getClosedSince() {
+      return closedSince;
+    }
+
+    /**
+     * @return the cached reports
+     */
+    public List<ReportBAG> getReports() {
+      return reports;
+    }
+  }
+
+  /**
+   * @return true if the cache is enabled in the preferences
+   */
+  public static boolean isEnabled() {
+    return ReportProperties.CACHE_ENABLED.get();
+  }
+
+  /**
+   * @return the directory of the cache for the currently selected report API
+   */
+  static File getDirectory() {
+    final String api = REPORT_API.fromPrefId(ReportProperties.API_REPORT_USE.get()).getPrefId();
+    return new File(new File(Config.getDirs().getCacheDirectory(true), "nl-pdok-report"), api);
+  }
+
+  private static File getFile(final ReportTile tile) {
+    return new File(getDirectory(), tile.getZoom() + "_" + tile.getX() + '_' + tile.getY() + EXTENSION);
+  }
+
+  /**
+   * Reads the cached reports of a tile.
+   *
+   * @param tile
+   *          the tile
+   * @return the cached reports, or <code>null</code> if the tile is not in the cache or the entry has expired
+   */
+  public static Entry read(final ReportTile tile) {
+    if (!isEnabled()) {
+      return null;
+    }
+    final File file = getFile(tile);
+    if (!file.isFile()) {
+      return null;
+    }
+    Entry entry;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      // The channel is closed before the file is deleted below
+      final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+      while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        // Read until the buffer is full
+      }
+      buffer.flip();
+      entry = decode(buffer, tile);
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      Logging.log(Logging.LEVEL_WARN, "Could not read cached reports of tile " + tile, e);
+      entry = null;
+    }
+    if (
+      entry == null
+        || System.currentTimeMillis() - entry.getDownloadedAt() > ReportProperties.CACHE_MAX_AGE.get() * 86_400_000L
+    ) {
+      delete(file);
+      return null;
+    }
+    // The modification time is used as last access time for the eviction
+    if (!file.setLastModified(System.currentTimeMillis())) {
+      Logging.debug("Could not update access time of " + file);
+    }
+    return entry;
+  }
+
+  private static Entry decode(final ByteBuffer buffer, final ReportTile tile) {
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      return null;
+    }
+    final ReportTile storedTile = new ReportTile(buffer.getInt(), buffer.getInt(), buffer.getInt());
+    if (!storedTile.equals(tile)) {
+      return null;
+    }
+    final long downloadedAt = buffer.getLong();
+    final long closedSince = buffer.getLong();
+    final int count = buffer.getInt();
+    final List<ReportBAG> reports = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final LatLon latLon = new LatLon(buffer.getDouble(), buffer.getDouble());
+      final long reportNumber = buffer.getLong();
+      // A time that is not known is stored as NO_VALUE, which is the same as ReportDateFormat.NO_TIME
+      final long reportedAt = buffer.getLong();
+      final long statusModifiedAt = buffer.getLong();
+      final long modifiedAt = buffer.getLong();
+      final String baseRegistration = getString(buffer);
+      final String source = getString(buffer);
+      final String sourceMaintainerCode = getString(buffer);
+      final String sourceMaintainerName = getString(buffer);
+      final String locationLink = getString(buffer);
+      final String reportNumberFull = getString(buffer);
+      final String description = getString(buffer);
+      final String product = getString(buffer);
+      final String status = getString(buffer);
+      final String statusCode = getString(buffer);
+      final String explanation = getString(buffer);
+      final String objectId = getString(buffer);
+      final String objectType = getString(buffer);
+      reports.add(
+        new ReportBAG(
+          latLon, baseRegistration, source, sourceMaintainerCode, sourceMaintainerName, locationLink,
+          reportNumber == NO_VALUE ? null : reportNumber, reportNumberFull, description, product, status, statusCode,
+          reportedAt, statusModifiedAt, modifiedAt, explanation, objectId, objectType
+        )
+      );
+    }
+    return new Entry(downloadedAt, closedSince, reports);
+  }
+
+  private static String getString(final ByteBuffer buffer) {
+    final int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Stores the reports of a tile in the cache, replacing a previous entry of the same tile.
+   *
+   * @param tile
+   *          the tile
+   * @param downloadedAt
+   *          the Epoch time at which the reports were downloaded
+   * @param closedSince
+   *          the registration time from which the closed reports of the tile are included, {@link ReportFilter#ALL} if
+   *          all of them are
+   * @param reports
+   *          the reports of the tile
+   */
+  public static void write(
+    final ReportTile tile, final long downloadedAt, final long closedSince, final Collection<ReportBAG> reports
+  ) {
+    if (!isEnabled()) {
+      return;
+    }
+    final File file = getFile(tile);
+    final File dir = file.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      Logging.warn("Could not create report cache directory " + dir);
+      return;
+    }
+    try {
+      final File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(tile.getZoom());
+        out.writeInt(tile.getX());
+        out.writeInt(tile.getY());
+        out.writeLong(downloadedAt);
+        out.writeLong(closedSince);
+        out.writeInt(reports.size());
+        for (ReportBAG report : reports) {
+          out.writeDouble(report.getLatLon().lat());
+          out.writeDouble(report.getLatLon().lon());
+          out.writeLong(report.getReportNumber() == null ? NO_VALUE : report.getReportNumber());
+          out.writeLong(report.getReportedAtTime());
+          out.writeLong(report.getStatusModifiedAtTime());
+          out.writeLong(report.getModifiedAtTime());
+          writeString(out, report.getBaseRegistration());
+          writeString(out, report.getSource());
+          writeString(out, report.getSourceMaintainerCode());
+          writeString(out, report.getSourceMaintainerName());
+          writeString(out, report.getLocationLink() == null ? null : report.getLocationLink().toString());
+          writeString(out, report.getReportNumberFull());
+          writeString(out, report.getDescription());
+          writeString(out, report.getProduct());
+          writeString(out, report.getStatus());
+          writeString(out, report.getStatusCode());
+          writeString(out, report.getExplanation());
+          writeString(out, report.getObjectId());
+          writeString(out, report.getObjectType());
+        }
+      }
+      final long oldSize = file.length();
+      move(tmp, file);
+      addSize(file.length() - oldSize);
+    } catch (IOException e) {
+      Logging.log(Logging.LEVEL_WARN, "Could not write cached reports of tile " + tile, e);
+    }
+  }
+
+  /**
+   * Records a download of a tile in which nothing has changed, without writing the reports again. Only the header of
+   * the cached entry is updated, so the entry does not expire.
+   *
+   * @param tile
+   *          the tile
+   * @param downloadedAt
+   *          the Epoch time at which the tile was downloaded
+   * @param closedSince
+   *          the registration time from which the closed reports of the tile are included, {@link ReportFilter#ALL} if
+   *          all of them are
+   */
+  public static void touch(final ReportTile tile, final long downloadedAt, final long closedSince) {
+    if (!isEnabled()) {
+      return;
+    }
+    final File file = getFile(tile);
+    if (!file.isFile()) {
+      return;
+    }
+    final ByteBuffer times = ByteBuffer.allocate(16).putLong(downloadedAt).putLong(closedSince);
+    times.flip();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.write(times, TIMES_OFFSET);
+    } catch (IOException e) {
+      Logging.log(Logging.LEVEL_WARN, "Could not update cached reports of tile " + tile, e);
+    }
+    if (!file.setLastModified(System.currentTimeMillis())) {
+      Logging.debug("Could not update access time of " + file);
+    }
+  }
+
+  private static void move(final File source, final File target) throws IOException {
+    try {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(source.toPath());
+    }
+  }
+
+  private static void writeString(final DataOutputStream out, final String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static void delete(final File file) {
+    final long length = file.length();
+    if (file.delete()) {
+      addSize(-length);
+    } else {
+      Logging.debug("Could not delete cached reports " + file);
+    }
+  }
+
+  private static synchronized void addSize(final long delta) {
+    if (size.get() < 0) {
+      size.set(Arrays.stream(listFiles()).mapToLong(File::length).sum());
+    } else {
+      size.addAndGet(delta);
+    }
+    final long maxSize = ReportProperties.CACHE_MAX_SIZE.get() * 1_048_576L;
+    if (size.get() > maxSize) {
+      evict(maxSize * 3 / 4);
+    }
+  }
+
+  /**
+   * Deletes the least recently used files, until the cache is smaller than the given size.
+   */
+  private static void evict(final long targetSize) {
+    final File[] files = listFiles();
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    long total = Arrays.stream(files).mapToLong(File::length).sum();
+    for (int i = 0; i < files.length && total > targetSize; i++) {
+      final long length = files[i].length();
+      if (files[i].delete()) {
+        total -= length;
+      }
+    }
+    size.set(total);
+    Logging.debug(String.format("Evicted cached reports, the cache now takes %d bytes", total));
+  }
+
+  private static File[] listFiles() {
+    final File[] files = getDirectory().listFiles((dir, name) -> name.endsWith(EXTENSION));
+    return files == null ? new File[0] : files;
+  }
+
+  /**
+   * Removes all cached reports of the currently selected report API.
+   */
+  public static synchronized void clear() {
+    for (File file : listFiles()) {
+      if (!file.delete()) {
+        Logging.debug("Could not delete cached reports " + file);
+      }
+    }
+    size.set(0);
+  }
+}
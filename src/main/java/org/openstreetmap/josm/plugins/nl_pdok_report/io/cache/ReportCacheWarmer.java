@@ -0,0 +1,193 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.Preferences;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportData;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportExecutors;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportSquareDownloadRunnable;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.DownloadCoverage;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Fills the {@link ReportCache} without starting JOSM, for example in a nightly job, so the reports of a region are
+ * shown right away in the next session. Uses the JOSM preferences of the current user, so the selected report API, its
+ * key and the cache directory are the same as in JOSM.
+ *
+ * <p>
+ * Usage: <code>java -cp josm.jar:nl-pdok-report.jar org.openstreetmap.josm.plugins.nl_pdok_report.io.cache.ReportCacheWarmer
+ * [--threads=N] [--file=regions.txt] [region...]</code>
+ * </p>
+ *
+ * <p>
+ * A region is either a bounding box <code>minLon,minLat,maxLon,maxLat</code> or a tile <code>zoom/x/y</code>. A file
+ * contains one region per line, empty lines and lines starting with <code>#</code> are ignored. All regions are split
+ * into tiles of {@link ReportProperties#DOWNLOAD_TILE_ZOOM}, which are downloaded in parallel.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportCacheWarmer {
+  private static final int DEFAULT_THREADS = 4;
+  /** Margin in degrees, far below the size of a tile. */
+  private static final double EDGE = 1e-9;
+
+  private ReportCacheWarmer() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * @param args
+   *          the command line arguments, see the description of the class
+   */
+  public static void main(final String[] args) {
+    initPreferences();
+    if (!ReportCache.isEnabled()) {
+      Logging.error("The report cache is disabled in the preferences, nothing to do");
+      System.exit(2);
+    }
+    final DownloadCoverage tiles = new DownloadCoverage(ReportProperties.DOWNLOAD_TILE_ZOOM.get());
+    final Set<ReportTile> regionTiles = new LinkedHashSet<>();
+    int threads = DEFAULT_THREADS;
+    try {
+      for (String arg : args) {
+        if (arg.startsWith("--threads=")) {
+          threads = Math.max(1, Integer.parseInt(arg.substring("--threads=".length())));
+        } else if (arg.startsWith("--file=")) {
+          for (String line : Files.readAllLines(Paths.get(arg.substring("--file=".length())), StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+              regionTiles.addAll(tiles.getTiles(parseRegion(line.trim())));
+            }
+          }
+        } else {
+          regionTiles.addAll(tiles.getTiles(parseRegion(arg)));
+        }
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      Logging.error("Invalid arguments: " + e.getMessage());
+      System.exit(2);
+    }
+    if (regionTiles.isEmpty()) {
+      Logging.error(
+        "Usage: ReportCacheWarmer [--threads=N] [--file=regions.txt] [minLon,minLat,maxLon,maxLat | zoom/x/y]..."
+      );
+      System.exit(2);
+    }
+    final int failed = warm(regionTiles, threads);
+    System.exit(failed == 0 ? 0 : 1);
+  }
+
+  /**
+   * Downloads the reports of the given tiles and writes them to the cache. Every tile is downloaded into its own
+   * {@link ReportData}, so the memory use does not grow with the number of tiles.
+   *
+   * @param tiles
+   *          the tiles to download
+   * @param threads
+   *          the number of tiles that are downloaded at the same time, if virtual threads are not used
+   * @return the number of tiles that could not be downloaded
+   */
+  public static int warm(final Collection<ReportTile> tiles, final int threads) {
+    final ExecutorService executor = ReportExecutors.newExecutor("report-cache-warmer-", threads);
+    final AtomicInteger done = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    final long start = System.currentTimeMillis();
+    final List<Future<?>> futures = new ArrayList<>(tiles.size());
+    for (ReportTile tile : tiles) {
+      futures.add(executor.submit(() -> {
+        final ReportSquareDownloadRunnable download = new ReportSquareDownloadRunnable(
+          ReportData.createDetached(), tile, true
+        );
+        download.run();
+        if (!download.isSuccessful()) {
+          failed.incrementAndGet();
+          Logging.warn("Could not download tile " + tile);
+        }
+        final int count = done.incrementAndGet();
+        if (count % 100 == 0 || count == tiles.size()) {
+          Logging.info(String.format("Downloaded %d of %d tiles", count, tiles.size()));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        executor.shutdownNow();
+        break;
+      } catch (ExecutionException e) {
+        failed.incrementAndGet();
+        Logging.error(e.getCause());
+      }
+    }
+    executor.shutdown();
+    Logging.info(
+      String.format(
+        "Cached %d of %d tiles in %d s", tiles.size() - failed.get(), tiles.size(),
+        (System.currentTimeMillis() - start) / 1000
+      )
+    );
+    return failed.get();
+  }
+
+  /**
+   * @param region
+   *          a bounding box <code>minLon,minLat,maxLon,maxLat</code> or a tile <code>zoom/x/y</code>
+   * @return the area of the region
+   * @throws IllegalArgumentException
+   *           if the region can't be parsed
+   */
+  static Bounds parseRegion(final String region) {
+    final String[] parts = region.split(region.contains("/") ? "/" : ",");
+    try {
+      if (parts.length == 3) {
+        final Bounds tile = new ReportTile(
+          Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim())
+        ).getBounds();
+        // The edges of a tile belong to the neighbouring tiles as well, shrink it so they are not downloaded too
+        return new Bounds(
+          tile.getMinLat() + EDGE, tile.getMinLon() + EDGE, tile.getMaxLat() - EDGE, tile.getMaxLon() - EDGE
+        );
+      } else if (parts.length == 4) {
+        return new Bounds(
+          Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[0].trim()),
+          Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[2].trim())
+        );
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Not a bounding box or tile: " + region, e);
+    }
+    throw new IllegalArgumentException("Not a bounding box or tile: " + region);
+  }
+
+  /**
+   * Loads the JOSM preferences, as JOSM itself does on startup.
+   */
+  private static void initPreferences() {
+    final Preferences pref = Preferences.main();
+    Config.setPreferencesInstance(pref);
+    Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+    Config.setUrlsProvider(JosmUrls.getInstance());
+    pref.init(false);
+  }
+}
@@ -0,0 +1,5 @@
+// License: GPL. For details, see LICENSE file.
+/**
+ * Classes for storing downloaded reports on disk, so they are available right away in the next session.
+ */
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.cache;
@@ -0,0 +1,202 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Splits the download of dense tiles into smaller requests. The tiles of {@link ReportProperties#DOWNLOAD_TILE_ZOOM}
+ * are the unit of the download coverage, but a tile is requested as the leaves of a quadtree: a part of which the
+ * download returned more than {@link ReportProperties#TILE_SPLIT_THRESHOLD} reports is split into four for the next
+ * download, and four parts that together returned less than half of the threshold are merged again. This way the
+ * responses stay around the same size in cities and in the countryside.
+ *
+ * <p>
+ * Only full downloads are split, deltas are small anyway. The split tiles are stored in the JOSM cache directory, so
+ * the next session starts with the same requests.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class AdaptiveTiling {
+  private static final String FILE_NAME = "tile-splits.txt";
+
+  /** The tiles that are split into their four children. */
+  private static final Set<ReportTile> split = ConcurrentHashMap.newKeySet();
+  private static boolean loaded;
+
+  private AdaptiveTiling() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * @param tile
+   *          a tile of the download grid
+   * @return the parts of the tile that are requested separately, the tile itself if it is not split
+   */
+  static List<ReportTile> getLeaves(final ReportTile tile) {
+    if (ReportProperties.TILE_SPLIT_THRESHOLD.get() <= 0) {
+      return Collections.singletonList(tile);
+    }
+    load();
+    return collectLeaves(tile);
+  }
+
+  /**
+   * @param tile
+   *          a tile
+   * @return the leaves of the quadtree of the tile, without loading the split tiles of the previous session
+   */
+  static List<ReportTile> collectLeaves(final ReportTile tile) {
+    final List<ReportTile> result = new ArrayList<>();
+    addLeaves(tile, result);
+    return result;
+  }
+
+  private static void addLeaves(final ReportTile tile, final List<ReportTile> result) {
+    if (split.contains(tile)) {
+      for (ReportTile child : tile.getChildren()) {
+        addLeaves(child, result);
+      }
+    } else {
+      result.add(tile);
+    }
+  }
+
+  /**
+   * Adapts the quadtree of a tile to the number of reports that a full download of its leaves returned.
+   *
+   * @param tile
+   *          a tile of the download grid
+   * @param counts
+   *          the number of reports of every leaf of the tile, see {@link #getLeaves(ReportTile)}
+   */
+  static void update(final ReportTile tile, final Map<ReportTile, Integer> counts) {
+    final int threshold = ReportProperties.TILE_SPLIT_THRESHOLD.get();
+    if (threshold > 0 && update(tile, counts, threshold, ReportProperties.TILE_SPLIT_MAX_DEPTH.get())) {
+      save();
+    }
+  }
+
+  /**
+   * Adapts the quadtree of a tile, without storing the result.
+   *
+   * @param tile
+   *          a tile of the download grid
+   * @param counts
+   *          the number of reports of every leaf of the tile
+   * @param threshold
+   *          a leaf with more reports than this is split
+   * @param maxDepth
+   *          the maximum number of times the tile is split
+   * @return true if a tile has been split or merged
+   */
+  static boolean update(
+    final ReportTile tile, final Map<ReportTile, Integer> counts, final int threshold, final int maxDepth
+  ) {
+    boolean changed = false;
+
+    // Merge bottom-up, so a merged tile can be merged with its siblings right away
+    final Map<ReportTile, Integer> sizes = new HashMap<>(counts);
+    final List<ReportTile> nodes = split.stream().filter(node -> isWithin(node, tile))
+      .sorted(Comparator.comparingInt(ReportTile::getZoom).reversed()).collect(Collectors.toList());
+    for (ReportTile node : nodes) {
+      int sum = 0;
+      boolean allKnown = true;
+      for (ReportTile child : node.getChildren()) {
+        final Integer size = sizes.get(child);
+        allKnown &= size != null;
+        sum += size == null ? 0 : size;
+      }
+      if (allKnown && sum < threshold / 2) {
+        split.remove(node);
+        sizes.put(node, sum);
+        changed = true;
+        Logging.debug(String.format("Merging tile %s, its parts contain %d reports", node, sum));
+      }
+    }
+
+    final int maxZoom = tile.getZoom() + Math.max(0, maxDepth);
+    for (Map.Entry<ReportTile, Integer> count : counts.entrySet()) {
+      if (count.getValue() > threshold && count.getKey().getZoom() < maxZoom && split.add(count.getKey())) {
+        changed = true;
+        Logging.info(
+          String.format(
+            "Splitting tile %s, it contains %d reports (threshold %d)", count.getKey(), count.getValue(), threshold
+          )
+        );
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * @return true if the tile is the given ancestor or lies within it
+   */
+  private static boolean isWithin(final ReportTile tile, final ReportTile ancestor) {
+    final int shift = tile.getZoom() - ancestor.getZoom();
+    return shift >= 0 && tile.getX() >> shift == ancestor.getX() && tile.getY() >> shift == ancestor.getY();
+  }
+
+  private static File getFile() {
+    return new File(new File(Config.getDirs().getCacheDirectory(true), "nl-pdok-report"), FILE_NAME);
+  }
+
+  private static synchronized void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    final File file = getFile();
+    if (!file.isFile()) {
+      return;
+    }
+    try {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        final String[] parts = line.trim().split("/");
+        if (parts.length == 3) {
+          split.add(new ReportTile(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+        }
+      }
+      Logging.debug(String.format("Loaded %d split tiles from %s", split.size(), file));
+    } catch (IOException | NumberFormatException e) {
+      Logging.log(Logging.LEVEL_WARN, "Could not read split tiles from " + file, e);
+    }
+  }
+
+  private static synchronized void save() {
+    final File file = getFile();
+    final File dir = file.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      Logging.warn("Could not create directory " + dir);
+      return;
+    }
+    try {
+      final File tmp = File.createTempFile(FILE_NAME, ".tmp", dir);
+      Files.write(
+        tmp.toPath(), split.stream().map(ReportTile::toString).sorted().collect(Collectors.toList()),
+        StandardCharsets.UTF_8
+      );
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Logging.log(Logging.LEVEL_WARN, "Could not write split tiles to " + file, e);
+    }
+  }
+}
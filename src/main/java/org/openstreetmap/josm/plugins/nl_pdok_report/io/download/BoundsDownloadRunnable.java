@@ -4,25 +4,34 @@ package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
 import java.awt.GraphicsEnvironment;
 import java.io.IOException;
 import java.net.HttpURLConnection;
-import java.net.InetSocketAddress;
-import java.net.Proxy;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.util.GuiHelper;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportPlugin;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportCircuitBreaker;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportExecutors;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
-import org.openstreetmap.josm.plugins.nl_pdok_report.utils.MultipartUtility;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
 import org.openstreetmap.josm.tools.Logging;
 
 public abstract class BoundsDownloadRunnable implements Runnable {
 
+  /** Failed downloads are not retried if the server asks to wait longer than this number of milliseconds. */
+  private static final long MAX_RETRY_DELAY = 60_000;
+
+  /** Time of the last notification about a failed download. */
+  private static final AtomicLong lastFailureNotification = new AtomicLong();
+
   protected final Bounds bounds;
+  private volatile boolean successful;
 
   protected abstract Function<Bounds, URL> getUrlGenerator();
 
@@ -33,47 +42,121 @@ public abstract class BoundsDownloadRunnable implements Runnable {
   @Override
   public void run() {
     URL nextURL = getUrlGenerator().apply(bounds);
+    REPORT_API reportApi = REPORT_API.fromPrefId(ReportProperties.API_REPORT_USE.get());
+    String token = reportApi.getToken();
+
+    if (!reportApi.isKeySet()) {
+      // The user is told once per request, by ReportDownloader.queueArea
+      Logging.debug("Not downloading " + nextURL + ", the API key is not set");
+      return;
+    }
+
+    final ReportCircuitBreaker breaker = ReportCircuitBreaker.getInstance(reportApi);
     try {
-      REPORT_API reportApi = REPORT_API.fromPrefId(ReportProperties.API_REPORT_USE.get());
-      String token = reportApi.getToken();
-
-//      String token = ReportProperties.USE_ACT_API.get() ? ReportProperties.API_KEY_ACT.get() : ReportProperties.API_KEY.get();
-      if ((token != null && !token.trim().isEmpty()) || !reportApi.needsKey()) {
-        URLConnection con = nextURL.openConnection();
-        if (ReportProperties.USE_FIDDLER.get())
-        {
-          MultipartUtility.TrustFiddlerSSL();
-          Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("127.0.0.1", 8888));
-          con = nextURL.openConnection(proxy);
-        }
-        else
-        {
-          con = nextURL.openConnection();
-        }
+      download(nextURL, reportApi, token, breaker);
+    } finally {
+      // Releases the trial request if it ended without a result, otherwise the breaker would never close again
+      breaker.recordAbandoned();
+    }
+  }
+
+  private void download(
+    final URL nextURL, final REPORT_API reportApi, final String token, final ReportCircuitBreaker breaker
+  ) {
+    final int maxRetries = Math.max(0, ReportProperties.HTTP_MAX_RETRIES.get());
+    for (int attempt = 0;; attempt++) {
+      if (!breaker.allowRequest()) {
+        Logging.debug("Not downloading " + nextURL + ", the " + reportApi.getLabel() + " report API is not available");
+        return;
+      }
+      HttpURLConnection con = null;
+      IOException failure;
+      try (ReportExecutors.HostPermit permit = ReportExecutors.acquire(nextURL)) {
+        con = ReportHttpClient.openConnection(nextURL, reportApi.needsKey() ? token : null);
         con.setRequestProperty("Content-Type", "application/json");
-        con.setRequestProperty("User-Agent", "JOSM");
-        con.setRequestProperty("API-Version", "1.0.0");
-        if (reportApi.needsKey())
-        {
-          con.setRequestProperty("apikey", token);
+        final int responseCode = con.getResponseCode();
+        if (ReportHttpClient.isRetryable(con)) {
+          failure = new IOException(I18n.tr("Server returned {0} {1}", responseCode, con.getResponseMessage()));
+        } else if (responseCode >= 400) {
+          // A client error, which won't be solved by trying again
+          breaker.recordSuccess();
+          logConnectionInfo(con, null);
+          fail(nextURL, new IOException(I18n.tr("Server returned {0} {1}", responseCode, con.getResponseMessage())));
+          return;
+        } else {
+          run(con);
+          if (!Thread.currentThread().isInterrupted()) {
+            breaker.recordSuccess();
+            successful = true;
+          }
+          return;
         }
-        run(con);
+      } catch (IOException e) {
+        failure = e;
+      } catch (InterruptedException e) {
+        // Cancelled while waiting for a connection
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        ReportHttpClient.release(con);
       }
-      else
-      {
-        new Notification(I18n.tr("API key is not set in JOSM preferences")).setIcon(ReportPlugin.LOGO.setSize(ImageSizes.LARGEICON).get())
-        .setDuration(Notification.TIME_LONG).show();
+
+      if (Thread.currentThread().isInterrupted()) {
+        // The download has been cancelled
+        return;
       }
-    } catch (IOException e) {
-      String message = I18n.tr("Could not read from URL {0}!", nextURL.toString());
-      Logging.log(Logging.LEVEL_WARN, message, e);
-      if (!GraphicsEnvironment.isHeadless()) {
-        new Notification(message).setIcon(ReportPlugin.LOGO.setSize(ImageSizes.LARGEICON).get())
-          .setDuration(Notification.TIME_LONG).show();
+      final boolean opened = breaker.recordFailure();
+      final long delay = ReportHttpClient.getRetryDelay(con, attempt);
+      if (breaker.isOpen() || attempt >= maxRetries || delay > MAX_RETRY_DELAY) {
+        if (opened) {
+          showNotification(
+            I18n.tr("The report API is not available at the moment, downloads will be retried later.")
+          );
+        }
+        if (breaker.isOpen()) {
+          Logging.log(Logging.LEVEL_WARN, I18n.tr("Could not read from URL {0}!", nextURL.toString()), failure);
+        } else {
+          fail(nextURL, failure);
+        }
+        return;
+      }
+      Logging.info(
+        String.format("Download from %s failed (%s), retrying in %d ms", nextURL, failure.getMessage(), delay)
+      );
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
       }
     }
   }
 
+  /**
+   * @return true if the download finished successfully, false if it failed, was cancelled or has not run (yet)
+   */
+  public boolean isSuccessful() {
+    return successful;
+  }
+
+  private static void fail(final URL url, final IOException e) {
+    String message = I18n.tr("Could not read from URL {0}!", url.toString());
+    Logging.log(Logging.LEVEL_WARN, message, e);
+    // Every tile is a download of its own, a failure of all tiles in view is only shown once
+    if (ReportDownloader.isNotificationDue(lastFailureNotification)) {
+      showNotification(message);
+    }
+  }
+
+  private static void showNotification(final String message) {
+    if (!GraphicsEnvironment.isHeadless()) {
+      GuiHelper.runInEDT(
+        () -> new Notification(message).setIcon(ReportPlugin.LOGO.setSize(ImageSizes.LARGEICON).get())
+          .setDuration(Notification.TIME_LONG).show()
+      );
+    }
+  }
+
   /**
    * Logs information about the given connection via {@link Logging#info(String)}. If it's a {@link HttpURLConnection},
    * the request method, the response code and the URL itself are logged. Otherwise only the URL is logged.
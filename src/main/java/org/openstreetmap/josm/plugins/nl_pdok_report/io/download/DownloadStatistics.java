@@ -0,0 +1,179 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Keeps count of the tiles that have been downloaded in this session and how long each of them took, so slow tiles can
+ * be found in the log and in the information of the layer.
+ *
+ * @author SanderH
+ */
+public final class DownloadStatistics {
+  /** Downloads that take longer than this number of milliseconds are logged as a warning. */
+  static final long SLOW_DOWNLOAD = 10_000;
+  /** Number of timings that are kept. */
+  private static final int RECENT_SIZE = 100;
+
+  private static final AtomicInteger downloadedTiles = new AtomicInteger();
+  private static final AtomicInteger failedTiles = new AtomicInteger();
+  private static final AtomicLong decodedFeatures = new AtomicLong();
+  private static final AtomicLong totalMillis = new AtomicLong();
+  private static final Deque<Timing> recent = new ArrayDeque<>(RECENT_SIZE);
+
+  private DownloadStatistics() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * The duration and the result of the download of one tile.
+   */
+  public static final class Timing {
+    private final ReportTile tile;
+    private final long millis;
+    private final int features;
+    private final long bytes;
+    private final boolean successful;
+
+    Timing(final ReportTile tile, final long millis, final int features, final long bytes, final boolean successful) {
+      this.tile = tile;
+      this.millis = millis;
+      this.features = features;
+      this.bytes = bytes;
+      this.successful = successful;
+    }
+
+    /**
+     * @return the downloaded tile
+     */
+    public ReportTile getTile() {
+      return tile;
+    }
+
+    /**
+     * @return the duration of the download in milliseconds, including retries
+     */
+    public long getMillis() {
+      return millis;
+    }
+
+    /**
+     * @return the number of reports that have been decoded
+     */
+    public int getFeatures() {
+      return features;
+    }
+
+    /**
+     * @return the number of bytes that have been received over the network
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    /**
+     * @return true if the download succeeded
+     */
+    public boolean isSuccessful() {
+      return successful;
+    }
+  }
+
+  /**
+   * Records a finished download. Cancelled downloads should not be recorded.
+   *
+   * @param tile
+   *          the downloaded tile
+   * @param millis
+   *          the duration of the download in milliseconds
+   * @param features
+   *          the number of reports that have been decoded
+   * @param bytes
+   *          the number of bytes that have been received over the network
+   * @param successful
+   *          true if the download succeeded
+   */
+  static void record(
+    final ReportTile tile, final long millis, final int features, final long bytes, final boolean successful
+  ) {
+    downloadedTiles.incrementAndGet();
+    if (!successful) {
+      failedTiles.incrementAndGet();
+    }
+    totalMillis.addAndGet(millis);
+    synchronized (recent) {
+      if (recent.size() >= RECENT_SIZE) {
+        recent.removeFirst();
+      }
+      recent.addLast(new Timing(tile, millis, features, bytes, successful));
+    }
+    if (millis >= SLOW_DOWNLOAD) {
+      Logging.warn(
+        String.format(
+          "Slow download of tile %s: %d ms for %d reports (%d bytes)%s", tile, millis, features, bytes,
+          successful ? "" : ", failed"
+        )
+      );
+    }
+  }
+
+  /**
+   * Counts a report that has been decoded, while the response is still being read.
+   */
+  static void decoded() {
+    decodedFeatures.incrementAndGet();
+  }
+
+  /**
+   * @return the number of tiles whose download has finished, successfully or not
+   */
+  public static int getDownloadedTiles() {
+    return downloadedTiles.get();
+  }
+
+  /**
+   * @return the number of tiles whose download has failed
+   */
+  public static int getFailedTiles() {
+    return failedTiles.get();
+  }
+
+  /**
+   * @return the number of reports that have been decoded from the downloads, including the downloads that are still
+   *         running
+   */
+  public static long getDecodedFeatures() {
+    return decodedFeatures.get();
+  }
+
+  /**
+   * @return the average duration of a download in milliseconds, 0 if nothing has been downloaded
+   */
+  public static long getAverageMillis() {
+    final int count = downloadedTiles.get();
+    return count == 0 ? 0 : totalMillis.get() / count;
+  }
+
+  /**
+   * @param count
+   *          the maximum number of timings
+   * @return the slowest of the recent downloads, the slowest first
+   */
+  public static List<Timing> getSlowest(final int count) {
+    final List<Timing> result;
+    synchronized (recent) {
+      result = new ArrayList<>(recent);
+    }
+    result.sort(Comparator.comparingLong(Timing::getMillis).reversed());
+    return result.subList(0, Math.min(count, result.size()));
+  }
+}
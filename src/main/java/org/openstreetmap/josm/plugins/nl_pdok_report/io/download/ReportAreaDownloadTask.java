@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.gui.PleaseWaitRunnable;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.tools.I18n;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Downloads the reports of an area that the user asked for, and shows the progress: the tiles that have been
+ * downloaded, the reports that have been decoded and the bytes that have been received. When the user cancels, the
+ * downloads of the area are cancelled, also the ones that are in the middle of a response.
+ *
+ * <p>
+ * The tiles are queued in the {@link ReportDownloader} like all other downloads, this task only waits for them.
+ * </p>
+ *
+ * @author SanderH
+ */
+class ReportAreaDownloadTask extends PleaseWaitRunnable {
+  /** Number of milliseconds between two updates of the progress. */
+  private static final long POLL_INTERVAL = 200;
+
+  private final Bounds bounds;
+  private final long maxAge;
+  private final boolean full;
+  private volatile Map<ReportTile, CompletableFuture<Void>> downloads = Collections.emptyMap();
+  /** Set when the user cancels, also before the tiles have been queued. */
+  private volatile boolean cancelled;
+
+  /**
+   * @param bounds
+   *          the area to download
+   * @param maxAge
+   *          tiles that have been downloaded less than this number of milliseconds ago are not downloaded again
+   * @param full
+   *          if true, all reports are downloaded, instead of only the reports modified since the previous download
+   */
+  ReportAreaDownloadTask(final Bounds bounds, final long maxAge, final boolean full) {
+    super(I18n.tr("Downloading reports"));
+    this.bounds = bounds;
+    this.maxAge = maxAge;
+    this.full = full;
+  }
+
+  @Override
+  protected void realRun() {
+    final long receivedAtStart = ReportHttpClient.getReceivedBytes();
+    final long featuresAtStart = DownloadStatistics.getDecodedFeatures();
+    final long start = System.currentTimeMillis();
+    // Not cancelled when the user pans away, the user can cancel this download in the dialog
+    downloads = ReportDownloader.queueArea(bounds, maxAge, full, false);
+    if (cancelled) {
+      // Cancelled while the tiles were being queued, cancel() did not know them yet
+      ReportDownloader.cancel(downloads.keySet());
+    }
+    final int total = downloads.size();
+    final ProgressMonitor monitor = getProgressMonitor();
+    monitor.beginTask(I18n.tr("Downloading reports"), total);
+    try {
+      int done = 0;
+      while (done < total && !cancelled && !monitor.isCanceled()) {
+        Thread.sleep(POLL_INTERVAL);
+        final int nowDone = (int) downloads.values().stream().filter(CompletableFuture::isDone).count();
+        monitor.worked(nowDone - done);
+        done = nowDone;
+        final long features = DownloadStatistics.getDecodedFeatures() - featuresAtStart;
+        monitor.setCustomText(
+          I18n.tr(
+            "{0} of {1} tiles, {2} reports, {3} received", done, total, features,
+            Utils.getSizeString(ReportHttpClient.getReceivedBytes() - receivedAtStart, Locale.getDefault())
+          )
+        );
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel();
+    } finally {
+      monitor.finishTask();
+    }
+    Logging.info(
+      String.format(
+        "Downloaded %d tiles of %s in %d ms%s", total, bounds, System.currentTimeMillis() - start,
+        cancelled || monitor.isCanceled() ? " (cancelled)" : ""
+      )
+    );
+  }
+
+  @Override
+  protected void cancel() {
+    cancelled = true;
+    ReportDownloader.cancel(downloads.keySet());
+  }
+
+  @Override
+  protected void finish() {
+    // Every tile updates the layer when it has been downloaded
+  }
+}
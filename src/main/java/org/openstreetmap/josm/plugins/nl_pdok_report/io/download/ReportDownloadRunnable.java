@@ -3,16 +3,22 @@ package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Collection;
+import java.util.Date;
 import java.util.function.Function;
 
 import jakarta.json.Json;
 import jakarta.json.JsonException;
-import jakarta.json.JsonReader;
+import jakarta.json.stream.JsonParser;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportData;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportURL;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.api.JsonReportDetailsDecoder;
 
@@ -20,29 +26,89 @@ public class ReportDownloadRunnable extends BoundsDownloadRunnable {
   private static final Function<Bounds, URL> URL_GEN = ReportURL::downloadReportURL;
 
   private final ReportData data;
+  private final Function<Bounds, URL> urlGenerator;
+  /** The reports that have been downloaded, <code>null</code> until the download succeeded. */
+  private Collection<ReportBAG> reports;
+  /** The number of bytes of the response that have been received, also when the download failed. */
+  private volatile long receivedBytes;
 
   public ReportDownloadRunnable(final ReportData data, final Bounds bounds) {
+    this(data, bounds, null);
+  }
+
+  /**
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param bounds
+   *          the area to download
+   * @param modifiedSince
+   *          if not <code>null</code>, only the reports that have been modified since this time are downloaded. Reports
+   *          that are already present in the {@link ReportData} are replaced by their modified version.
+   */
+  public ReportDownloadRunnable(final ReportData data, final Bounds bounds, final Date modifiedSince) {
+    this(data, bounds, modifiedSince == null ? URL_GEN : b -> ReportURL.downloadReportURL(b, modifiedSince));
+  }
+
+  /**
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param bounds
+   *          the area to download
+   * @param urlGenerator
+   *          creates the URL of the request for the area, see
+   *          {@link ReportURL#downloadReportURL(Bounds, Date, java.util.Collection, Date, Date)}
+   */
+  public ReportDownloadRunnable(final ReportData data, final Bounds bounds, final Function<Bounds, URL> urlGenerator) {
     super(bounds);
     this.data = data;
+    this.urlGenerator = urlGenerator;
   }
 
   @Override
   public void run(final URLConnection con) throws IOException {
-    if (Thread.interrupted()) {
+    if (Thread.currentThread().isInterrupted()) {
       return;
     }
-    try (JsonReader reader = Json.createReader(new BufferedInputStream(con.getInputStream()))) {
-      JsonReportDetailsDecoder.decodeReportInfos(reader.readObject(), data);
-      logConnectionInfo(con, null);
+    try (
+      ReportHttpClient.ResponseStream in = ReportHttpClient.getInputStream((HttpURLConnection) con);
+      JsonParser parser = Json.createParser(new BufferedInputStream(in))
+    ) {
+      try {
+        reports = JsonReportDetailsDecoder.decodeReportInfos(
+          parser, data, ReportProperties.CLIP_TO_BOUNDS.get() ? bounds : null, report -> DownloadStatistics.decoded()
+        );
+      } finally {
+        receivedBytes += in.getReceivedBytes();
+      }
+      logConnectionInfo(
+        con, String.format(
+          "%d reports, %d bytes received, %d bytes uncompressed", reports.size(), in.getReceivedBytes(),
+          in.getDecodedBytes()
+        )
+      );
       // sho ReportMainDialog.getInstance().updateTitle();
     } catch (JsonException | NumberFormatException e) {
       throw new IOException(e);
     }
   }
 
+  /**
+   * @return the reports that have been downloaded, or <code>null</code> if the download did not succeed
+   */
+  public Collection<ReportBAG> getReports() {
+    return reports;
+  }
+
+  /**
+   * @return the number of bytes that have been received over the network, for all attempts together
+   */
+  public long getReceivedBytes() {
+    return receivedBytes;
+  }
+
   @Override
   protected Function<Bounds, URL> getUrlGenerator() {
-    return URL_GEN;
+    return urlGenerator;
   }
 
 }
@@ -0,0 +1,151 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+
+/**
+ * The download of a single {@link ReportTile}, as it is queued in the {@link ReportDownloader}. While the task is
+ * queued or running, other requests for the same tile attach to its {@link #getCompletion() completion} instead of
+ * starting another download.
+ *
+ * <p>
+ * Tasks are ordered by their priority, so the {@link ReportDownloader} can download the tiles closest to the center of
+ * the view first. Tasks with the same priority are run in the order in which they were created.
+ * </p>
+ *
+ * <p>
+ * When a running task is cancelled, its connection is closed as well, so the download stops in the middle of the
+ * response instead of after the next read. The task only counts as finished when its thread has stopped running it,
+ * so the tile is not downloaded again while the cancelled download may still be adding reports to the layer.
+ * </p>
+ *
+ * @author SanderH
+ */
+class ReportDownloadTask extends FutureTask<Void> implements Comparable<ReportDownloadTask> {
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  private final ReportTile tile;
+  private final double priority;
+  private final boolean viewDependent;
+  private final boolean prefetch;
+  private final long sequence = SEQUENCE.getAndIncrement();
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+  /** The thread that is running this task, guarded by <code>this</code>. */
+  private Thread runner;
+  private final AtomicBoolean finished = new AtomicBoolean();
+
+  /**
+   * @param tile
+   *          the tile that should be downloaded
+   * @param download
+   *          downloads the tile
+   * @param priority
+   *          the priority of the task, tasks with a lower value are run first
+   * @param viewDependent
+   *          true if the tile is only downloaded because it is in the view, so the task can be cancelled when the tile
+   *          leaves the view
+   * @param prefetch
+   *          true if the tile is not visible yet, but is expected to become visible soon
+   */
+  ReportDownloadTask(
+    final ReportTile tile, final Runnable download, final double priority, final boolean viewDependent,
+    final boolean prefetch
+  ) {
+    super(download, null);
+    this.tile = tile;
+    this.priority = priority;
+    this.viewDependent = viewDependent;
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * @return the tile that is downloaded by this task
+   */
+  ReportTile getTile() {
+    return tile;
+  }
+
+  /**
+   * @return true if the task can be cancelled when its tile leaves the view
+   */
+  boolean isViewDependent() {
+    return viewDependent;
+  }
+
+  /**
+   * @return true if the tile is downloaded because it is expected to become visible soon
+   */
+  boolean isPrefetch() {
+    return prefetch;
+  }
+
+  /**
+   * @return a future that completes when this task has finished, or is cancelled when this task is cancelled
+   */
+  CompletableFuture<Void> getCompletion() {
+    return completion;
+  }
+
+  @Override
+  public void run() {
+    synchronized (this) {
+      runner = Thread.currentThread();
+    }
+    try {
+      super.run();
+    } finally {
+      // Before the thread can take the next task, so a late cancel never aborts the connection of another task
+      synchronized (this) {
+        runner = null;
+      }
+      if (isCancelled()) {
+        // Cancelled while running, done() has left finishing the task to this thread
+        finish();
+      }
+    }
+  }
+
+  @Override
+  public synchronized boolean cancel(final boolean mayInterruptIfRunning) {
+    final boolean cancelled = super.cancel(mayInterruptIfRunning);
+    if (cancelled && mayInterruptIfRunning && runner != null) {
+      ReportHttpClient.abort(runner);
+    }
+    return cancelled;
+  }
+
+  @Override
+  public int compareTo(final ReportDownloadTask other) {
+    final int result = Double.compare(priority, other.priority);
+    return result != 0 ? result : Long.compare(sequence, other.sequence);
+  }
+
+  @Override
+  protected void done() {
+    synchronized (this) {
+      if (isCancelled() && runner != null) {
+        // The download may still be running until it notices the interrupt, run() finishes the task when it stops
+        return;
+      }
+    }
+    finish();
+  }
+
+  private void finish() {
+    if (!finished.compareAndSet(false, true)) {
+      return;
+    }
+    ReportDownloader.finished(this);
+    if (isCancelled()) {
+      completion.cancel(false);
+    } else {
+      completion.complete(null);
+    }
+  }
+}
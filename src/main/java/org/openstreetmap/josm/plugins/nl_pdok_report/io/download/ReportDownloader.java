@@ -1,18 +1,48 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.gui.Notification;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportData;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportPlugin;
+import org.openstreetmap.josm.plugins.nl_pdok_report.gui.ReportFilterDialog;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportExecutors;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.cache.ReportCache;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.DownloadCoverage;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportFilter;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.PluginState;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportUtils;
 import org.openstreetmap.josm.tools.I18n;
+import org.openstreetmap.josm.tools.ImageProvider.ImageSizes;
 import org.openstreetmap.josm.tools.Logging;
 
 /**
@@ -75,10 +105,36 @@ public final class ReportDownloader {
     }
   }
 
-  /** Executor that will run the petitions. */
-  private static ThreadPoolExecutor executor = new ThreadPoolExecutor(
-    3, 5, 100, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100), new ThreadPoolExecutor.DiscardPolicy()
-  );
+  /** Requests for areas covering more tiles than this are rejected. */
+  private static final int MAX_TILES_PER_REQUEST = 100;
+  /** Tiles are rejected when this many tiles are waiting to be downloaded. */
+  private static final int MAX_QUEUED_TILES = 200;
+  /** Added to the priority of prefetched tiles, so they are downloaded after all visible tiles. */
+  private static final double PREFETCH_PRIORITY = 1_000_000;
+  /** Prefetched tiles are cancelled when they are further from the view than this part of its size. */
+  private static final double PREFETCH_KEEP = 1;
+  /** Minimum number of milliseconds between two notifications of the same kind. */
+  private static final long NOTIFICATION_INTERVAL = 30_000;
+
+  /**
+   * Tasks that are rejected are cancelled, so they are removed from the in-flight downloads and the tile is downloaded
+   * again by a later request.
+   */
+  private static final RejectedExecutionHandler CANCEL_POLICY = (r, e) -> reject((ReportDownloadTask) r);
+
+  /** Number of tiles that could not be downloaded because too many downloads were waiting. */
+  private static final AtomicInteger rejectedDownloads = new AtomicInteger();
+  private static final AtomicLong lastRejectedNotification = new AtomicLong();
+  private static final AtomicLong lastMissingKeyNotification = new AtomicLong();
+
+  /** Executor that will run the petitions, the tiles closest to the center of the view first. */
+  private static ThreadPoolExecutor executor = newExecutor();
+
+  /** The downloads that are queued or running, so a request for the same tile can attach to it. */
+  private static final Map<ReportTile, ReportDownloadTask> inFlight = new ConcurrentHashMap<>();
+
+  /** Executor that reads the cached reports, separate from the downloads so they are shown right away. */
+  private static ExecutorService cacheExecutor = Executors.newSingleThreadExecutor();
 
   /**
    * Indicates whether the last download request has been rejected because it requested an area that was too big. If
@@ -107,17 +163,393 @@ public final class ReportDownloader {
   }
 
   /**
-   * Gets the images within the given bounds.
+   * Gets the reports within the given bounds. Only the tiles that have not been downloaded recently are requested.
+   *
+   * @param bounds
+   *          A {@link Bounds} object containing the area to be downloaded.
+   * @return a future that completes when all tiles of the area have been downloaded
+   */
+  public static CompletableFuture<Void> getFeedback(Bounds bounds) {
+    return getFeedback(bounds, ReportProperties.DOWNLOAD_TILE_MAX_AGE.get() * 1000L);
+  }
+
+  /**
+   * Gets the reports within the given bounds.
+   *
+   * @param bounds
+   *          A {@link Bounds} object containing the area to be downloaded.
+   * @param maxAge
+   *          tiles that have been downloaded less than this number of milliseconds ago are not downloaded again
+   * @return a future that completes when all tiles of the area have been downloaded
+   */
+  private static CompletableFuture<Void> getFeedback(Bounds bounds, long maxAge) {
+    return getFeedback(bounds, maxAge, false, false);
+  }
+
+  /**
+   * Gets the reports within the given bounds.
    *
    * @param bounds
    *          A {@link Bounds} object containing the area to be downloaded.
+   * @param maxAge
+   *          tiles that have been downloaded less than this number of milliseconds ago are not downloaded again
+   * @param full
+   *          if true, all reports are downloaded, instead of only the reports modified since the previous download
+   * @param viewDependent
+   *          true if the area is downloaded because it is visible, the downloads are cancelled when it leaves the view
+   * @return a future that completes when all tiles of the area have been downloaded. Tiles that are already being
+   *         downloaded are not requested again, the future waits for the running download instead.
    */
-  public static void getFeedback(Bounds bounds) {
-    run(new ReportSquareDownloadRunnable(bounds));
+  private static CompletableFuture<Void> getFeedback(
+    Bounds bounds, long maxAge, boolean full, boolean viewDependent
+  ) {
+    return CompletableFuture.allOf(
+      queueArea(bounds, maxAge, full, viewDependent).values().toArray(new CompletableFuture<?>[0])
+    );
   }
 
-  private static void run(Runnable t) {
-    executor.execute(t);
+  /**
+   * Queues the downloads of the missing tiles within the given bounds.
+   *
+   * @param bounds
+   *          A {@link Bounds} object containing the area to be downloaded.
+   * @param maxAge
+   *          tiles that have been downloaded less than this number of milliseconds ago are not downloaded again
+   * @param full
+   *          if true, all reports are downloaded, instead of only the reports modified since the previous download
+   * @param viewDependent
+   *          true if the area is downloaded because it is visible, the downloads are cancelled when it leaves the view
+   * @return for every queued tile a future that completes when it has been downloaded, empty if the area is too big
+   *         or the API key is not set. Tiles that are already being downloaded are not requested again, their future
+   *         waits for the running download instead.
+   */
+  static Map<ReportTile, CompletableFuture<Void>> queueArea(
+    Bounds bounds, long maxAge, boolean full, boolean viewDependent
+  ) {
+    if (!REPORT_API.fromPrefId(ReportProperties.API_REPORT_USE.get()).isKeySet()) {
+      // Checked once for the whole area, the tiles are not marked as failed
+      Logging.warn("Not downloading reports for " + bounds + ", the API key is not set");
+      if (isNotificationDue(lastMissingKeyNotification)) {
+        showNotification(I18n.tr("API key is not set in JOSM preferences"));
+      }
+      return Collections.emptyMap();
+    }
+    final DownloadCoverage coverage = ReportLayer.getInstance().getData().getCoverage();
+    final long numTiles = coverage.countTiles(bounds);
+    if (numTiles > MAX_TILES_PER_REQUEST) {
+      stoppedDownload = true;
+      Logging.info(
+        String.format("Not downloading reports for %s, the area is too big (%d tiles).", bounds, numTiles)
+      );
+      return Collections.emptyMap();
+    }
+    stoppedDownload = false;
+    final Map<ReportTile, CompletableFuture<Void>> downloads = new LinkedHashMap<>();
+    final LatLon center = getViewCenter(bounds);
+    final long closedSince = ReportFilter.getActive().getRequestedClosedSince(System.currentTimeMillis());
+    for (ReportTile tile : coverage.getMissingTiles(bounds, maxAge, closedSince)) {
+      downloads.put(tile, queue(coverage, tile, full, distance(tile, center), viewDependent, false));
+    }
+    // Tiles that are being downloaded count as downloaded in the coverage, the request waits for them as well
+    for (ReportTile tile : coverage.getTiles(bounds)) {
+      final ReportDownloadTask running = inFlight.get(tile);
+      if (running != null) {
+        downloads.putIfAbsent(tile, running.getCompletion());
+      }
+    }
+    return downloads;
+  }
+
+  /**
+   * Downloads the missing tiles of an area that the user is expected to look at next. These tiles are only downloaded
+   * when no other tiles are waiting, and are cancelled when they get too far away from the view.
+   *
+   * @param area
+   *          the area that is expected to become visible
+   * @param center
+   *          the expected center of the view, the tiles closest to it are downloaded first
+   * @param budget
+   *          asked for every tile before it is downloaded, if it returns false no more tiles are downloaded
+   * @return the number of tiles that are downloaded
+   */
+  static int prefetch(Bounds area, LatLon center, BooleanSupplier budget) {
+    if (!ReportLayer.hasInstance()) {
+      return 0;
+    }
+    if (!REPORT_API.fromPrefId(ReportProperties.API_REPORT_USE.get()).isKeySet()) {
+      return 0;
+    }
+    final DownloadCoverage coverage = ReportLayer.getInstance().getData().getCoverage();
+    if (coverage.countTiles(area) > MAX_TILES_PER_REQUEST) {
+      return 0;
+    }
+    final List<ReportTile> tiles = coverage.getMissingTiles(
+      area, ReportProperties.DOWNLOAD_TILE_MAX_AGE.get() * 1000L,
+      ReportFilter.getActive().getRequestedClosedSince(System.currentTimeMillis())
+    );
+    tiles.removeIf(inFlight::containsKey);
+    tiles.sort(Comparator.comparingDouble(tile -> distance(tile, center)));
+    int count = 0;
+    for (ReportTile tile : tiles) {
+      // Never fill the queue with guesses, so visible tiles are not rejected
+      if (executor.getQueue().size() >= MAX_QUEUED_TILES / 2 || !budget.getAsBoolean()) {
+        break;
+      }
+      queue(coverage, tile, false, PREFETCH_PRIORITY + distance(tile, center), true, true);
+      count++;
+    }
+    if (count > 0) {
+      Logging.debug(String.format("Prefetching %d tiles around %s", count, center));
+    }
+    return count;
+  }
+
+  /**
+   * Queues the download of a tile, unless it is already being downloaded.
+   *
+   * @param coverage
+   *          the coverage in which the download is recorded
+   * @param tile
+   *          the tile to download
+   * @param full
+   *          if true, all reports are downloaded, instead of only the reports modified since the previous download
+   * @param priority
+   *          the priority of the download, lower values are downloaded first
+   * @param viewDependent
+   *          true if the download can be cancelled when the tile leaves the view
+   * @param prefetch
+   *          true if the tile is not visible yet
+   * @return a future that completes when the tile has been downloaded
+   */
+  private static CompletableFuture<Void> queue(
+    DownloadCoverage coverage, ReportTile tile, boolean full, double priority, boolean viewDependent, boolean prefetch
+  ) {
+    final ReportDownloadTask task = new ReportDownloadTask(
+      tile, () -> downloadToLayer(tile, full), priority, viewDependent, prefetch
+    );
+    ReportDownloadTask running = inFlight.putIfAbsent(tile, task);
+    if (running != null && running.isPrefetch() && !prefetch && executor.remove(running)) {
+      // The prefetch has not started yet, replace it so the tile gets the priority of a visible tile
+      running.cancel(false);
+      running = inFlight.putIfAbsent(tile, task);
+    }
+    if (running != null) {
+      return running.getCompletion();
+    }
+    if (coverage.getDownloadTime(tile) == null && ReportCache.isEnabled()) {
+      final int generation = coverage.getGeneration(tile);
+      cacheExecutor.execute(() -> loadCached(coverage, tile, generation));
+    }
+    coverage.markDownloaded(tile, System.currentTimeMillis());
+    if (executor.getQueue().size() >= MAX_QUEUED_TILES) {
+      reject(task);
+    } else {
+      executor.execute(task);
+    }
+    return task.getCompletion();
+  }
+
+  /**
+   * Downloads a tile into the data of the layer and updates the GUI.
+   *
+   * @param tile
+   *          the tile to download
+   * @param full
+   *          if true, all reports are downloaded, instead of only the reports modified since the previous download
+   */
+  private static void downloadToLayer(ReportTile tile, boolean full) {
+    PluginState.startDownload();
+    ReportUtils.updateHelpText();
+    try {
+      new ReportSquareDownloadRunnable(ReportLayer.getInstance().getData(), tile, full).run();
+    } finally {
+      // Also when the download has been cancelled, otherwise the plugin would stay in the downloading state
+      PluginState.finishDownload();
+      ReportUtils.updateHelpText();
+    }
+    ReportLayer.invalidateInstance();
+    ReportFilterDialog.getInstance().refresh();
+  }
+
+  /**
+   * @param bounds
+   *          the bounds
+   * @param factor
+   *          the part of the width and height that is added on each side
+   * @return the given bounds, enlarged on all sides
+   */
+  static Bounds grow(Bounds bounds, double factor) {
+    final double dLat = bounds.getHeight() * factor;
+    final double dLon = bounds.getWidth() * factor;
+    return new Bounds(
+      Math.max(-90, bounds.getMinLat() - dLat), Math.max(-180, bounds.getMinLon() - dLon),
+      Math.min(90, bounds.getMaxLat() + dLat), Math.min(180, bounds.getMaxLon() + dLon)
+    );
+  }
+
+  /**
+   * @param bounds
+   *          the requested area
+   * @return the center of the view, or the center of the requested area if there is no view
+   */
+  private static LatLon getViewCenter(Bounds bounds) {
+    final MapView mv = ReportPlugin.getMapView();
+    return mv != null ? mv.getRealBounds().getCenter() : bounds.getCenter();
+  }
+
+  /**
+   * @return the squared distance between the center of the tile and the given point, in degrees of latitude
+   */
+  private static double distance(ReportTile tile, LatLon point) {
+    final LatLon center = tile.getCenter();
+    final double dLon = (center.lon() - point.lon()) * Math.cos(Math.toRadians(point.lat()));
+    final double dLat = center.lat() - point.lat();
+    return dLon * dLon + dLat * dLat;
+  }
+
+  /**
+   * Cancels the downloads of tiles that are only downloaded because they were visible, but are no longer in the view.
+   * Both queued and running downloads are cancelled. Prefetched tiles are kept as long as they are near the view.
+   *
+   * @param view
+   *          the current view
+   */
+  private static void cancelOutside(Bounds view) {
+    final Bounds prefetchArea = grow(view, PREFETCH_KEEP);
+    inFlight.values().stream().filter(ReportDownloadTask::isViewDependent)
+      .filter(task -> !(task.isPrefetch() ? prefetchArea : view).intersects(task.getTile().getBounds()))
+      .forEach(task -> {
+        if (task.cancel(true)) {
+          executor.remove(task);
+          Logging.debug("Cancelled download of tile " + task.getTile() + ", it is no longer visible");
+        }
+      });
+  }
+
+  /**
+   * Cancels the queued and running downloads of the given tiles. Running downloads stop in the middle of the response.
+   *
+   * @param tiles
+   *          the tiles
+   */
+  static void cancel(Collection<ReportTile> tiles) {
+    for (ReportTile tile : tiles) {
+      final ReportDownloadTask task = inFlight.get(tile);
+      if (task != null && task.cancel(true)) {
+        executor.remove(task);
+      }
+    }
+  }
+
+  /**
+   * @return the number of tiles that are waiting to be downloaded or are being downloaded
+   */
+  public static int getPendingDownloads() {
+    return inFlight.size();
+  }
+
+  /**
+   * Cancels a download that could not be queued, and lets the user know that not everything has been downloaded.
+   *
+   * @param task
+   *          the rejected download
+   */
+  private static void reject(ReportDownloadTask task) {
+    task.cancel(false);
+    final int rejected = rejectedDownloads.incrementAndGet();
+    Logging.warn(
+      String.format(
+        "Download of tile %s rejected, too many downloads are waiting (%d rejected so far)", task.getTile(), rejected
+      )
+    );
+    if (isNotificationDue(lastRejectedNotification)) {
+      showNotification(I18n.tr("Not all reports could be downloaded, too many downloads are waiting."));
+    }
+  }
+
+  /**
+   * Limits the notifications of one kind, so a problem that affects all tiles of the view is not shown for every
+   * tile.
+   *
+   * @param lastNotification
+   *          the time of the last notification of the kind, is set to now if a notification is due
+   * @return true if no notification of the kind has been shown during the last {@link #NOTIFICATION_INTERVAL}
+   */
+  static boolean isNotificationDue(AtomicLong lastNotification) {
+    final long now = System.currentTimeMillis();
+    final long last = lastNotification.get();
+    return now - last >= NOTIFICATION_INTERVAL && lastNotification.compareAndSet(last, now);
+  }
+
+  private static void showNotification(String message) {
+    if (!GraphicsEnvironment.isHeadless()) {
+      GuiHelper.runInEDT(
+        () -> new Notification(message).setIcon(ReportPlugin.LOGO.setSize(ImageSizes.LARGEICON).get())
+          .setDuration(Notification.TIME_LONG).show()
+      );
+    }
+  }
+
+  /**
+   * @return the number of tile downloads that have been rejected, because too many downloads were waiting
+   */
+  public static int getRejectedDownloads() {
+    return rejectedDownloads.get();
+  }
+
+  /**
+   * Called by a {@link ReportDownloadTask} when it is done, to remove it from the in-flight downloads. A cancelled task
+   * is only done when its worker has stopped, so the tile is not downloaded again while the old download still writes.
+   *
+   * @param task
+   *          the finished task
+   */
+  static void finished(ReportDownloadTask task) {
+    inFlight.remove(task.getTile(), task);
+    if (task.isCancelled() && ReportLayer.hasInstance()) {
+      ReportLayer.getInstance().getData().getCoverage().markNotDownloaded(task.getTile());
+    }
+  }
+
+  /**
+   * Shows the reports of a tile that are stored in the {@link ReportCache}, until the download of the tile finishes.
+   * Nothing is shown if the download has already finished, the cached reports would replace its newer result.
+   *
+   * @param coverage
+   *          the coverage of the data of the layer
+   * @param tile
+   *          the tile
+   * @param generation
+   *          the {@link DownloadCoverage#getGeneration(ReportTile) generation} of the tile when the download was queued
+   */
+  private static void loadCached(DownloadCoverage coverage, ReportTile tile, int generation) {
+    final ReportCache.Entry entry = ReportCache.read(tile);
+    if (entry == null || entry.getReports().isEmpty() || !ReportLayer.hasInstance()) {
+      return;
+    }
+    final ReportData data = ReportLayer.getInstance().getData();
+    synchronized (coverage) {
+      if (data.getCoverage() != coverage || coverage.getGeneration(tile) != generation) {
+        Logging.debug("Skipped cached reports of tile " + tile + ", it has been downloaded already");
+        return;
+      }
+      data.addAll(entry.getReports());
+      coverage.updateModifiedSince(tile, entry.getReports());
+      coverage.setClosedSince(tile, entry.getClosedSince());
+    }
+    Logging.debug(String.format("Loaded %d cached reports of tile %s", entry.getReports().size(), tile));
+  }
+
+  private static ThreadPoolExecutor newExecutor() {
+    // The queue is unbounded, so the pool never grows beyond its core size. With virtual threads the pool size is the
+    // per-host connection limit, so the tasks still wait in the priority queue instead of for a connection.
+    final int poolSize = ReportExecutors.getPoolSize(4);
+    final ThreadPoolExecutor result = new ThreadPoolExecutor(
+      poolSize, poolSize, 100, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+      ReportExecutors.newThreadFactory("report-download-"), CANCEL_POLICY
+    );
+    result.allowCoreThreadTimeOut(true);
+    return result;
   }
 
   /**
@@ -130,54 +562,57 @@ public final class ReportDownloader {
   }
 
   /**
-   * If some part of the current view has not been downloaded, it is downloaded.
+   * @return true if the last download request has been rejected because the area was too big
+   */
+  public static boolean isStoppedDownload() {
+    return stoppedDownload;
+  }
+
+  /**
+   * If some part of the current view has not been downloaded (recently), it is downloaded.
    */
   public static void downloadVisibleArea() {
+    downloadVisibleArea(false);
+  }
+
+  /**
+   * Downloads the reports in the current view.
+   *
+   * @param refresh
+   *          if true, all reports in the view are downloaded again, even if they have been downloaded recently. This is
+   *          a request of the user, its progress is shown in a dialog in which it can be cancelled.
+   */
+  public static void downloadVisibleArea(boolean refresh) {
     final MapView mv = ReportPlugin.getMapView();
     if (mv != null) {
       final Bounds view = mv.getRealBounds();
-      // 2019-11-27: always download, there may be new/updated data...
-      //if (!isViewDownloaded(view)) {
-        ReportLayer.getInstance().getData().getBounds().add(view);
-        getFeedback(view);
-      //}
-    }
-  }
-
-  private static boolean isViewDownloaded(Bounds view) {
-    int n = 15;
-    boolean[][] inside = new boolean[n][n];
-    for (int i = 0; i < n; i++) {
-      for (int j = 0; j < n; j++) {
-        if (isInBounds(
-          new LatLon(
-            view.getMinLat() + (view.getMaxLat() - view.getMinLat()) * ((double) i / n),
-            view.getMinLon() + (view.getMaxLon() - view.getMinLon()) * ((double) j / n)
-          )
-        )) {
-          inside[i][j] = true;
-        }
-      }
-    }
-    for (int i = 0; i < n; i++) {
-      for (int j = 0; j < n; j++) {
-        if (!inside[i][j])
-          return false;
+      cancelOutside(view);
+      if (refresh) {
+        MainApplication.worker.submit(new ReportAreaDownloadTask(view, 0, true));
+      } else {
+        getFeedback(view, ReportProperties.DOWNLOAD_TILE_MAX_AGE.get() * 1000L, false, true);
       }
     }
-    return true;
   }
 
   /**
-   * Checks if the given {@link LatLon} object lies inside the bounds of the image.
+   * Called when the filter lets through more reports than before. The closed reports that were left out are downloaded
+   * for the areas of the current download mode.
    *
-   * @param latlon
-   *          The coordinates to check.
-   *
-   * @return true if it lies inside the bounds; false otherwise;
+   * @see ReportFilter#setActive(ReportFilter)
    */
-  private static boolean isInBounds(LatLon latlon) {
-    return ReportLayer.getInstance().getData().getBounds().parallelStream().anyMatch(b -> b.contains(latlon));
+  public static void filterWidened() {
+    switch (getMode()) {
+      case VISIBLE_AREA:
+        downloadVisibleArea();
+        break;
+      case OSM_AREA:
+        downloadOSMArea();
+        break;
+      default:
+        // Downloaded with the next manual download
+        break;
+    }
   }
 
   /**
@@ -187,25 +622,23 @@ public final class ReportDownloader {
     if (MainApplication.getLayerManager().getEditLayer() == null) {
       return;
     }
-    MainApplication.getLayerManager().getEditLayer().data.getDataSourceBounds().stream()
-      .filter(bounds -> !ReportLayer.getInstance().getData().getBounds().contains(bounds)).forEach(bounds -> {
-        ReportLayer.getInstance().getData().getBounds().add(bounds);
-        ReportDownloader.getFeedback(bounds.getMin(), bounds.getMax());
-      });
+    MainApplication.getLayerManager().getEditLayer().data.getDataSourceBounds().forEach(ReportDownloader::getFeedback);
   }
 
   /**
    * Stops all running threads.
    */
   public static void stopAll() {
-    executor.shutdownNow();
+    cacheExecutor.shutdownNow();
+    // Tasks that never started are cancelled, so they don't stay registered as in-flight
+    executor.shutdownNow().forEach(r -> ((Future<?>) r).cancel(false));
     try {
       executor.awaitTermination(30, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       Logging.error(e);
     }
-    executor = new ThreadPoolExecutor(
-      3, 5, 100, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100), new ThreadPoolExecutor.DiscardPolicy()
-    );
+    inFlight.values().forEach(task -> task.cancel(true));
+    executor = newExecutor();
+    cacheExecutor = Executors.newSingleThreadExecutor();
   }
 }
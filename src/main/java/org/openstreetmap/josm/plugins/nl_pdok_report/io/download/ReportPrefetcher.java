@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+
+/**
+ * Downloads the reports around the view before the user gets there, when in
+ * {@link ReportDownloader.DOWNLOAD_MODE#VISIBLE_AREA} mode. While the user pans or zooms out, the next view is guessed
+ * from the recent movement. When the view settles, a ring of tiles around it is downloaded.
+ *
+ * <p>
+ * Prefetched tiles are downloaded after all visible tiles. The number of prefetched tiles is limited by a token bucket
+ * of {@link ReportProperties#PREFETCH_BUDGET} tiles per minute, so a user who pans around a lot does not use much more
+ * bandwidth than one who does not.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportPrefetcher {
+  /** Number of milliseconds ahead for which the view is guessed. */
+  private static final long LOOKAHEAD = 1_000;
+  /** Minimum number of milliseconds between two guesses. */
+  private static final long MIN_INTERVAL = 250;
+  /** If the view did not change for this number of milliseconds, the next change is the start of a new movement. */
+  private static final long MOVEMENT_GAP = 1_000;
+  /** Weight of the latest movement in the smoothed velocity. */
+  private static final double SMOOTHING = 0.5;
+  /** Width of the ring around a settled view, as part of the size of the view. */
+  private static final double RING = 0.5;
+
+  private static Bounds lastView;
+  private static long lastChange;
+  private static long lastGuess;
+  /** Smoothed velocity of the center of the view, in degrees per millisecond. */
+  private static double velocityLat;
+  private static double velocityLon;
+
+  private static double tokens;
+  private static long lastRefill;
+
+  private ReportPrefetcher() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * @return true if prefetching is enabled in the preferences
+   */
+  public static boolean isEnabled() {
+    return ReportProperties.PREFETCH_BUDGET.get() > 0;
+  }
+
+  /**
+   * Called while the view changes. Guesses where the view is going and downloads the tiles there.
+   *
+   * @param view
+   *          the current view
+   */
+  public static synchronized void viewChanged(final Bounds view) {
+    final long now = System.currentTimeMillis();
+    boolean zoomingOut = false;
+    if (lastView != null && now > lastChange && now - lastChange < MOVEMENT_GAP) {
+      final double dt = now - lastChange;
+      velocityLat = SMOOTHING * (view.getCenter().lat() - lastView.getCenter().lat()) / dt
+        + (1 - SMOOTHING) * velocityLat;
+      velocityLon = SMOOTHING * (view.getCenter().lon() - lastView.getCenter().lon()) / dt
+        + (1 - SMOOTHING) * velocityLon;
+      zoomingOut = view.getWidth() > lastView.getWidth() * 1.05;
+    } else {
+      velocityLat = 0;
+      velocityLon = 0;
+    }
+    lastView = view;
+    lastChange = now;
+
+    if (!isEnabled() || now - lastGuess < MIN_INTERVAL) {
+      return;
+    }
+    lastGuess = now;
+    Bounds next = shift(view, velocityLat * LOOKAHEAD, velocityLon * LOOKAHEAD);
+    if (zoomingOut) {
+      // The next view is about twice as large
+      next = ReportDownloader.grow(next, 0.5);
+    }
+    if (!next.equals(view) || zoomingOut) {
+      ReportDownloader.prefetch(next, next.getCenter(), ReportPrefetcher::tryAcquire);
+    }
+  }
+
+  /**
+   * Called when the view has settled. Downloads a ring of tiles around the view.
+   *
+   * @param view
+   *          the current view
+   */
+  public static synchronized void viewSettled(final Bounds view) {
+    velocityLat = 0;
+    velocityLon = 0;
+    if (isEnabled()) {
+      ReportDownloader.prefetch(ReportDownloader.grow(view, RING), view.getCenter(), ReportPrefetcher::tryAcquire);
+    }
+  }
+
+  private static Bounds shift(final Bounds bounds, final double dLat, final double dLon) {
+    return new Bounds(
+      clamp(bounds.getMinLat() + dLat, 90), clamp(bounds.getMinLon() + dLon, 180),
+      clamp(bounds.getMaxLat() + dLat, 90), clamp(bounds.getMaxLon() + dLon, 180)
+    );
+  }
+
+  private static double clamp(final double value, final double max) {
+    return Math.max(-max, Math.min(max, value));
+  }
+
+  /**
+   * Takes a token from the bucket, if there is one.
+   *
+   * @return true if a tile may be prefetched
+   */
+  private static synchronized boolean tryAcquire() {
+    final long now = System.currentTimeMillis();
+    final int budget = ReportProperties.PREFETCH_BUDGET.get();
+    tokens = Math.min(budget, tokens + (now - lastRefill) * budget / 60_000d);
+    lastRefill = now;
+    if (tokens >= 1) {
+      tokens--;
+      return true;
+    }
+    return false;
+  }
+}
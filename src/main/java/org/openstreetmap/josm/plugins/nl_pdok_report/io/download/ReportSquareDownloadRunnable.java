@@ -1,44 +1,178 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.openstreetmap.josm.data.Bounds;
-import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
-import org.openstreetmap.josm.plugins.nl_pdok_report.gui.ReportFilterDialog;
-import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportUtils;
-import org.openstreetmap.josm.plugins.nl_pdok_report.utils.PluginState;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportData;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.cache.ReportCache;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.DownloadCoverage;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportFilter;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportURL;
 
+/**
+ * Downloads the reports of one {@link ReportTile} into a {@link ReportData}, records the download in its
+ * {@link DownloadCoverage} and stores the reports of the tile in the {@link ReportCache}. Does not touch the layer or
+ * any dialog, so it can also run without a GUI.
+ *
+ * <p>
+ * If {@link ReportProperties#FILTER_ON_SERVER} is enabled, the active {@link ReportFilter} is applied by the API: if
+ * old closed reports are hidden, the open and the closed reports of the tile are requested separately, the latter only
+ * from the oldest registration time that is shown. When the filter is widened later, only the closed reports that were
+ * left out are requested. A full download of a dense tile is requested in parts, see {@link AdaptiveTiling}.
+ * </p>
+ */
 public class ReportSquareDownloadRunnable implements Runnable {
 
-  private final Bounds bounds;
+  private final ReportData data;
+  private final ReportTile tile;
+  private final boolean full;
+  private volatile boolean successful;
 
   /**
    * Main constructor.
    *
-   * @param bounds
-   *          the bounds of the area that should be downloaded
-   *
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param tile
+   *          the tile that should be downloaded
+   */
+  public ReportSquareDownloadRunnable(ReportData data, ReportTile tile) {
+    this(data, tile, false);
+  }
+
+  /**
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param tile
+   *          the tile that should be downloaded
+   * @param full
+   *          if true, all reports of the tile are downloaded. Otherwise only the reports that have been modified since
+   *          the previous download of the tile are downloaded, if {@link ReportProperties#DELTA_SYNC} is enabled.
    */
-  public ReportSquareDownloadRunnable(Bounds bounds) {
-    this.bounds = bounds;
+  public ReportSquareDownloadRunnable(ReportData data, ReportTile tile, boolean full) {
+    this.data = data;
+    this.tile = tile;
+    this.full = full;
   }
 
   @Override
   public void run() {
-    PluginState.startDownload();
-    ReportUtils.updateHelpText();
-
-    // Download basic feedback data synchronously
-    new ReportDownloadRunnable(ReportLayer.getInstance().getData(), bounds).run();
+    final DownloadCoverage coverage = data.getCoverage();
+    final long downloadedAt = System.currentTimeMillis();
+    final long requiredClosedSince = ReportFilter.getActive().getRequestedClosedSince(downloadedAt);
+    final long knownClosedSince = coverage.getClosedSince(tile);
+    // Without the filter of the API, the closed reports that were left out can only be added with a full download
+    final boolean incremental = ReportProperties.DELTA_SYNC.get()
+      && (knownClosedSince <= requiredClosedSince || ReportProperties.FILTER_ON_SERVER.get());
+    final Long modifiedSince = full || !incremental ? null : coverage.getModifiedSince(tile);
+    // The part of the tile that each request covers
+    final Map<ReportDownloadRunnable, ReportTile> requests = new LinkedHashMap<>();
+    final Bounds bounds = tile.getBounds();
+    // The API includes reports modified at the given time, so the delta starts just after the known modification
+    final ReportDownloadRunnable delta = modifiedSince == null ? null
+      : new ReportDownloadRunnable(data, bounds, new Date(modifiedSince + 1));
+    if (delta != null) {
+      // A delta contains all statuses, so reports that have been closed since the previous download are updated
+      requests.put(delta, tile);
+      if (knownClosedSince > requiredClosedSince) {
+        // The filter has been widened, only the closed reports that were left out before are requested
+        final Date from = requiredClosedSince == ReportFilter.ALL ? null : new Date(requiredClosedSince);
+        final Date until = new Date(knownClosedSince);
+        requests.put(
+          new ReportDownloadRunnable(
+            data, bounds, b -> ReportURL.downloadReportURL(b, null, ReportFilter.CLOSED_STATUS_CODES, from, until)
+          ), tile
+        );
+      }
+    } else {
+      // Dense tiles are requested in parts, see AdaptiveTiling
+      for (ReportTile leaf : AdaptiveTiling.getLeaves(tile)) {
+        if (requiredClosedSince == ReportFilter.ALL) {
+          requests.put(new ReportDownloadRunnable(data, leaf.getBounds()), leaf);
+        } else {
+          final Date from = new Date(requiredClosedSince);
+          requests.put(
+            new ReportDownloadRunnable(
+              data, leaf.getBounds(),
+              b -> ReportURL.downloadReportURL(b, null, ReportFilter.OPEN_STATUS_CODES, null, null)
+            ), leaf
+          );
+          requests.put(
+            new ReportDownloadRunnable(
+              data, leaf.getBounds(),
+              b -> ReportURL.downloadReportURL(b, null, ReportFilter.CLOSED_STATUS_CODES, from, null)
+            ), leaf
+          );
+        }
+      }
+    }
 
-    if (Thread.interrupted()) {
-      return;
+    final List<ReportBAG> reports = new ArrayList<>();
+    long receivedBytes = 0;
+    final Map<ReportTile, Integer> counts = new HashMap<>();
+    boolean allSuccessful = true;
+    for (Map.Entry<ReportDownloadRunnable, ReportTile> entry : requests.entrySet()) {
+      final ReportDownloadRunnable request = entry.getKey();
+      request.run();
+      receivedBytes += request.getReceivedBytes();
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+      if (!request.isSuccessful() || request.getReports() == null) {
+        allSuccessful = false;
+        break;
+      }
+      if (request == delta) {
+        // Also when the API rounds the time, a report that was already known is not counted as a change
+        request.getReports().stream().filter(report -> report.getModifiedAtTime() > modifiedSince)
+          .forEach(reports::add);
+      } else {
+        reports.addAll(request.getReports());
+      }
+      // The requested area includes its border, so a report on the border of two parts is only counted in its own part
+      final ReportTile part = entry.getValue();
+      counts.merge(
+        part, (int) request.getReports().stream().filter(report -> part.contains(report.getLatLon())).count(),
+        Integer::sum
+      );
     }
+    DownloadStatistics.record(
+      tile, System.currentTimeMillis() - downloadedAt, reports.size(), receivedBytes, allSuccessful
+    );
 
-    PluginState.finishDownload();
+    if (!allSuccessful) {
+      // Download it again with the next request, instead of leaving a hole until the tile expires
+      coverage.markNotDownloaded(tile);
+    } else {
+      final long closedSince = modifiedSince != null && knownClosedSince <= requiredClosedSince ? knownClosedSince
+        : requiredClosedSince;
+      coverage.recordDownload(tile, downloadedAt, reports, closedSince);
+      if (modifiedSince == null) {
+        AdaptiveTiling.update(tile, counts);
+      }
+      // A delta only contains the modified reports, so the cache is updated with all known reports of the tile
+      if (modifiedSince == null || !reports.isEmpty()) {
+        ReportCache.write(tile, downloadedAt, closedSince, data.getReports(bounds));
+      } else {
+        ReportCache.touch(tile, downloadedAt, closedSince);
+      }
+      successful = true;
+    }
+  }
 
-    ReportUtils.updateHelpText();
-    ReportLayer.invalidateInstance();
-    ReportFilterDialog.getInstance().refresh();
-    // sho ReportMainDialog.getInstance().updateReport();
+  /**
+   * @return true if the reports of the tile have been downloaded
+   */
+  public boolean isSuccessful() {
+    return successful;
   }
 }
@@ -0,0 +1,75 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportPlugin;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Starts the download of the visible area when the user stops panning or zooming. Every change of the view postpones
+ * the download, so it is started once, {@link ReportProperties#DOWNLOAD_DEBOUNCE} milliseconds after the last change.
+ * No thread is busy while the view does not change. The changes are also passed on to the {@link ReportPrefetcher}.
+ *
+ * @author SanderH
+ */
+public final class ViewportDownloadTrigger {
+  private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+    Utils.newThreadFactory("report-viewport-download-%d", Thread.NORM_PRIORITY)
+  );
+
+  /** The scheduled download, <code>null</code> if none is pending. */
+  private static ScheduledFuture<?> pending;
+
+  private ViewportDownloadTrigger() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * Called when the view has changed, (re)schedules the download of the visible area.
+   */
+  public static synchronized void viewChanged() {
+    final MapView mv = ReportPlugin.getMapView();
+    if (mv != null && ReportPrefetcher.isEnabled()) {
+      final Bounds view = mv.getRealBounds();
+      SCHEDULER.execute(() -> ReportPrefetcher.viewChanged(view));
+    }
+    if (pending != null) {
+      pending.cancel(false);
+    }
+    pending = SCHEDULER.schedule(
+      ViewportDownloadTrigger::download, Math.max(0, ReportProperties.DOWNLOAD_DEBOUNCE.get()), TimeUnit.MILLISECONDS
+    );
+  }
+
+  /**
+   * Cancels the pending download, if any.
+   */
+  public static synchronized void cancel() {
+    if (pending != null) {
+      pending.cancel(false);
+      pending = null;
+    }
+  }
+
+  private static void download() {
+    synchronized (ViewportDownloadTrigger.class) {
+      pending = null;
+    }
+    if (ReportLayer.hasInstance()) {
+      ReportDownloader.downloadVisibleArea();
+      ReportLayer.invalidateInstance();
+      final MapView mv = ReportPlugin.getMapView();
+      if (mv != null) {
+        ReportPrefetcher.viewSettled(mv.getRealBounds());
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.dump;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through a memory-mapped window that moves through the file. The file is read by the operating system
+ * straight into the page cache, without copying it into a Java buffer first, and only one window is mapped at a time,
+ * so files of any size can be read.
+ *
+ * @author SanderH
+ */
+final class MappedFileInputStream extends InputStream {
+  /** Size of the mapped window, in bytes. */
+  private static final long WINDOW = 64L << 20;
+
+  private final FileChannel channel;
+  private final long size;
+  private long windowStart;
+  private MappedByteBuffer buffer;
+
+  /**
+   * @param file
+   *          the file to read
+   * @throws IOException
+   *           if the file can't be opened
+   */
+  MappedFileInputStream(final File file) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.size = channel.size();
+  }
+
+  /**
+   * @return the size of the file in bytes
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * @return the number of bytes that have been read
+   */
+  long getPosition() {
+    return buffer == null ? 0 : windowStart + buffer.position();
+  }
+
+  /**
+   * Makes sure there are bytes left in the current window, moving the window if needed.
+   *
+   * @return false at the end of the file
+   */
+  private boolean ensureRemaining() throws IOException {
+    if (buffer != null && buffer.hasRemaining()) {
+      return true;
+    }
+    final long next = buffer == null ? 0 : windowStart + buffer.capacity();
+    if (next >= size) {
+      return false;
+    }
+    windowStart = next;
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, next, Math.min(WINDOW, size - next));
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return ensureRemaining() ? buffer.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureRemaining()) {
+      return -1;
+    }
+    final int n = Math.min(len, buffer.remaining());
+    buffer.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    if (n <= 0 || !ensureRemaining()) {
+      return 0;
+    }
+    final int skipped = (int) Math.min(n, buffer.remaining());
+    buffer.position(buffer.position() + skipped);
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return buffer == null ? (int) Math.min(Integer.MAX_VALUE, size) : buffer.remaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    buffer = null;
+    channel.close();
+  }
+}
@@ -0,0 +1,229 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.dump;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonReaderFactory;
+import jakarta.json.stream.JsonParser;
+
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportData;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.api.JsonDecoder;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.api.JsonReportDetailsDecoder;
+import org.openstreetmap.josm.tools.I18n;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Imports the reports of a local dump file into the {@link ReportData}, for example a snapshot of all reports of the
+ * country. The features are decoded the same way as the responses of the API, see
+ * {@link JsonReportDetailsDecoder#decodeReportInfo(JsonObject)}.
+ *
+ * <p>
+ * Two formats are read, both optionally compressed with gzip (detected by the content, not the name):
+ * </p>
+ * <ul>
+ * <li>a GeoJSON FeatureCollection, which is parsed as a stream so the file is never held in memory as a whole;</li>
+ * <li>newline delimited GeoJSON features (files ending with <code>.ndjson</code>, <code>.jsonl</code>,
+ * <code>.geojsonl</code> or <code>.geojsons</code>, before <code>.gz</code>).</li>
+ * </ul>
+ *
+ * <p>
+ * The file is read through a memory-mapped window. The reports are added to the {@link ReportData} in batches of
+ * {@link #BATCH_SIZE}, so the layer is updated while the import is running without firing an event per report.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportDumpReader {
+  /** Number of reports that are added to the {@link ReportData} at once. */
+  static final int BATCH_SIZE = 5_000;
+  private static final String[] NDJSON_EXTENSIONS = { ".ndjson", ".jsonl", ".geojsonl", ".geojsons" };
+
+  private final File file;
+  private final ReportData data;
+  private final ProgressMonitor monitor;
+
+  private MappedFileInputStream mapped;
+  private List<ReportBAG> batch = new ArrayList<>(BATCH_SIZE);
+  private int imported;
+  private int skipped;
+  private long reportedKiB;
+
+  /** Thrown from within the decoder to stop reading when the import is cancelled. */
+  private static final class CancelledException extends RuntimeException {
+    private static final long serialVersionUID = 2079542474526587411L;
+  }
+
+  /**
+   * @param file
+   *          the dump file
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param monitor
+   *          the monitor to which the progress is reported, and which can cancel the import
+   */
+  public ReportDumpReader(final File file, final ReportData data, final ProgressMonitor monitor) {
+    this.file = file;
+    this.data = data;
+    this.monitor = monitor;
+  }
+
+  /**
+   * Reads the dump file.
+   *
+   * @return the number of imported reports
+   * @throws IOException
+   *           if the file can't be read or is not valid JSON
+   */
+  public int read() throws IOException {
+    imported = 0;
+    skipped = 0;
+    reportedKiB = 0;
+    try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+      mapped = in;
+      monitor.beginTask(I18n.tr("Importing reports from {0}", file.getName()), toKiB(in.size()));
+      final InputStream decoded = decompress(new BufferedInputStream(in, 65_536));
+      if (isNdjson()) {
+        readNdjson(decoded);
+      } else {
+        readFeatureCollection(decoded);
+      }
+      flush();
+    } catch (CancelledException e) {
+      flush();
+      Logging.info(String.format("Import of %s cancelled after %d reports", file, imported));
+    } catch (JsonException e) {
+      throw new IOException(I18n.tr("{0} is not a valid report dump: {1}", file.getName(), e.getMessage()), e);
+    } finally {
+      mapped = null;
+      monitor.finishTask();
+    }
+    if (skipped > 0) {
+      Logging.warn(String.format("Skipped %d features of %s that are not valid reports", skipped, file));
+    }
+    Logging.info(String.format("Imported %d reports from %s", imported, file));
+    return imported;
+  }
+
+  /**
+   * @return the number of features that were skipped because they are not valid reports
+   */
+  public int getSkipped() {
+    return skipped;
+  }
+
+  private static InputStream decompress(final BufferedInputStream in) throws IOException {
+    in.mark(2);
+    final int b0 = in.read();
+    final int b1 = in.read();
+    in.reset();
+    if (b0 == 0x1F && b1 == 0x8B) {
+      return new BufferedInputStream(new GZIPInputStream(in, 65_536), 65_536);
+    }
+    return in;
+  }
+
+  private boolean isNdjson() {
+    String name = file.getName().toLowerCase(Locale.ROOT);
+    if (name.endsWith(".gz")) {
+      name = name.substring(0, name.length() - 3);
+    }
+    for (String extension : NDJSON_EXTENSIONS) {
+      if (name.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void readFeatureCollection(final InputStream in) {
+    try (JsonParser parser = Json.createParser(in)) {
+      JsonDecoder.decodeFeatureCollection(parser, this::decode, this::add);
+    }
+  }
+
+  private void readNdjson(final InputStream in) throws IOException {
+    // The factory is looked up once, instead of for every line by Json.createReader
+    final JsonReaderFactory factory = Json.createReaderFactory(null);
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 65_536);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      final JsonObject feature;
+      try (JsonReader jsonReader = factory.createReader(new StringReader(line))) {
+        feature = jsonReader.readObject();
+      } catch (JsonException e) {
+        Logging.debug("Skipping invalid line in " + file + ": " + e.getMessage());
+        skipped++;
+        continue;
+      }
+      final ReportBAG report = decode(feature);
+      if (report != null) {
+        add(report);
+      }
+    }
+  }
+
+  private ReportBAG decode(final JsonObject feature) {
+    final ReportBAG report;
+    try {
+      report = JsonReportDetailsDecoder.decodeReportInfo(feature);
+    } catch (RuntimeException e) {
+      // A feature without coordinates or report number, or with values of the wrong type
+      skipped++;
+      return null;
+    }
+    if (report == null) {
+      skipped++;
+    }
+    return report;
+  }
+
+  private void add(final ReportBAG report) {
+    batch.add(report);
+    if (batch.size() >= BATCH_SIZE) {
+      flush();
+      if (monitor.isCanceled()) {
+        throw new CancelledException();
+      }
+    }
+  }
+
+  private void flush() {
+    if (!batch.isEmpty()) {
+      data.addAll(batch);
+      imported += batch.size();
+      batch = new ArrayList<>(BATCH_SIZE);
+    }
+    if (mapped != null) {
+      final long kiB = mapped.getPosition() / 1024;
+      if (kiB > reportedKiB) {
+        monitor.worked((int) (kiB - reportedKiB));
+        reportedKiB = kiB;
+      }
+      monitor.setCustomText(I18n.trn("{0} report imported", "{0} reports imported", imported, imported));
+    }
+  }
+
+  private static int toKiB(final long bytes) {
+    return (int) Math.min(Integer.MAX_VALUE, bytes / 1024);
+  }
+}
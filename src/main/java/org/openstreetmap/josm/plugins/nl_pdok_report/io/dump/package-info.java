@@ -0,0 +1,5 @@
+// License: GPL. For details, see LICENSE file.
+/**
+ * Classes for importing reports from a local dump file instead of downloading them from the API.
+ */
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.dump;
@@ -5,15 +5,16 @@ import java.awt.Cursor;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.event.MouseAdapter;
-import java.util.Calendar;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.NavigatableComponent.ZoomChangeListener;
 import org.openstreetmap.josm.plugins.nl_pdok_report.AbstractReport;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
 import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportDownloader;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ViewportDownloadTrigger;
 
 /**
  * Superclass for all the mode of the {@link ReportLayer}.
@@ -23,9 +24,6 @@ import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportDownloade
  */
 public abstract class AbstractMode extends MouseAdapter implements ZoomChangeListener {
 
-  private static final int DOWNLOAD_COOLDOWN = 2000;
-  private static SemiautomaticThread semiautomaticThread = new SemiautomaticThread();
-
   /**
    * Cursor that should become active when this mode is activated.
    */
@@ -33,16 +31,13 @@ public abstract class AbstractMode extends MouseAdapter implements ZoomChangeLis
 
   protected AbstractReport getClosest(Point clickPoint) {
     double snapDistance = 10;
-    double minDistance = Double.MAX_VALUE;
-    AbstractReport closest = null;
-    for (AbstractReport image : ReportLayer.getInstance().getData().getReports()) {
-      Point imagePoint = MainApplication.getMap().mapView.getPoint(image.getMovingLatLon());
-      imagePoint.setLocation(imagePoint.getX(), imagePoint.getY());
-      double dist = clickPoint.distanceSq(imagePoint);
-      if (minDistance > dist && clickPoint.distance(imagePoint) < snapDistance && image.isVisible()) {
-        minDistance = dist;
-        closest = image;
-      }
+    MapView mapView = MainApplication.getMap().mapView;
+    // The nearest report within the snap distance, found with the spatial index
+    LatLon clickLatLon = mapView.getLatLon(clickPoint.getX(), clickPoint.getY());
+    double radius = mapView.getDist100Pixel() * snapDistance / 100;
+    AbstractReport closest = ReportLayer.getInstance().getData().nearest(clickLatLon, radius);
+    if (closest == null || clickPoint.distance(mapView.getPoint(closest.getMovingLatLon())) >= snapDistance) {
+      return null;
     }
     return closest;
   }
@@ -62,46 +57,7 @@ public abstract class AbstractMode extends MouseAdapter implements ZoomChangeLis
   @Override
   public void zoomChanged() {
     if (ReportDownloader.getMode() == ReportDownloader.DOWNLOAD_MODE.VISIBLE_AREA) {
-      if (!semiautomaticThread.isAlive())
-        semiautomaticThread.start();
-      semiautomaticThread.moved();
-    }
-  }
-
-  /**
-   * Resets the semiautomatic mode thread.
-   */
-  public static void resetThread() {
-    semiautomaticThread.interrupt();
-    semiautomaticThread = new SemiautomaticThread();
-  }
-
-  private static class SemiautomaticThread extends Thread {
-
-    /** If in semiautomatic mode, the last Epoch time when there was a download */
-    private long lastDownload;
-
-    private boolean moved;
-
-    @Override
-    public void run() {
-      while (true) {
-        if (this.moved && Calendar.getInstance().getTimeInMillis() - this.lastDownload >= DOWNLOAD_COOLDOWN) {
-          this.lastDownload = Calendar.getInstance().getTimeInMillis();
-          ReportDownloader.downloadVisibleArea();
-          this.moved = false;
-          ReportLayer.invalidateInstance();
-        }
-        try {
-          Thread.sleep(100);
-        } catch (InterruptedException e) {
-          return;
-        }
-      }
-    }
-
-    public void moved() {
-      this.moved = true;
+      ViewportDownloadTrigger.viewChanged();
     }
   }
 }
@@ -82,9 +82,11 @@ public class SelectMode extends AbstractMode {
         LatLon eventLatLon = MainApplication.getMap().mapView.getLatLon(e.getX(), e.getY());
         LatLon imgLatLon = MainApplication.getMap().mapView
           .getLatLon(highlightImgPoint.getX(), highlightImgPoint.getY());
-        ReportLayer.getInstance().getData().getMultiSelectedReports().parallelStream().filter(
+        final ReportData data = ReportLayer.getInstance().getData();
+        data.getMultiSelectedReports().parallelStream().filter(
           img -> !(img instanceof ReportBAG)
         ).forEach(img -> img.move(eventLatLon.getX() - imgLatLon.getX(), eventLatLon.getY() - imgLatLon.getY()));
+        data.updatePositions(data.getMultiSelectedReports());
       }
       ReportLayer.invalidateInstance();
     }
@@ -0,0 +1,285 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+
+/**
+ * Keeps track of the areas for which reports have been downloaded. The areas are quantized to {@link ReportTile}s of a
+ * fixed zoom level, for each tile the time of the download is recorded. This way the coverage of an area can be checked
+ * by only looking at the tiles in that area.
+ *
+ * <p>
+ * Every completed download of a tile raises the {@link #getGeneration(ReportTile) generation} of the tile. Code that
+ * applies older data of a tile, like the reports from the cache, holds the lock on the coverage and skips the data if
+ * the generation has changed since it started, so it never rolls back the result of a download.
+ * </p>
+ *
+ * @author SanderH
+ */
+public class DownloadCoverage {
+  private final int zoom;
+  /** The downloaded tiles with the Epoch time of their download. */
+  private final Map<ReportTile, Long> downloaded = new ConcurrentHashMap<>();
+  /** For each tile the most recent modification time (tijdstipWijziging) of the reports that are known. */
+  private final Map<ReportTile, Long> modifiedSince = new ConcurrentHashMap<>();
+  /**
+   * For each tile the registration time from which its closed reports are known, if they have been downloaded with a
+   * {@link ReportFilter}. Tiles that are not in here have all their closed reports.
+   */
+  private final Map<ReportTile, Long> closedSince = new ConcurrentHashMap<>();
+  /** For each tile the number of completed downloads, never cleared so an old generation is never seen again. */
+  private final Map<ReportTile, Integer> generations = new ConcurrentHashMap<>();
+
+  /**
+   * Main constructor.
+   *
+   * @param zoom
+   *          the zoom level of the tile grid
+   */
+  public DownloadCoverage(final int zoom) {
+    this.zoom = zoom;
+  }
+
+  /**
+   * @return the zoom level of the tile grid
+   */
+  public int getZoom() {
+    return zoom;
+  }
+
+  /**
+   * @param bounds
+   *          the area
+   * @return the number of tiles needed to cover the given area
+   */
+  public long countTiles(final Bounds bounds) {
+    final long columns = ReportTile.lon2x(zoom, bounds.getMaxLon()) - ReportTile.lon2x(zoom, bounds.getMinLon()) + 1L;
+    final long rows = ReportTile.lat2y(zoom, bounds.getMinLat()) - ReportTile.lat2y(zoom, bounds.getMaxLat()) + 1L;
+    return columns * rows;
+  }
+
+  /**
+   * @param bounds
+   *          the area
+   * @return all tiles that intersect with the given area
+   */
+  public List<ReportTile> getTiles(final Bounds bounds) {
+    final List<ReportTile> result = new ArrayList<>();
+    final int minX = ReportTile.lon2x(zoom, bounds.getMinLon());
+    final int maxX = ReportTile.lon2x(zoom, bounds.getMaxLon());
+    final int minY = ReportTile.lat2y(zoom, bounds.getMaxLat());
+    final int maxY = ReportTile.lat2y(zoom, bounds.getMinLat());
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        result.add(new ReportTile(zoom, x, y));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param bounds
+   *          the area
+   * @param maxAge
+   *          the maximum age in milliseconds of a download, tiles downloaded longer ago are returned as missing
+   * @return the tiles of the given area that have not been downloaded (recently enough)
+   */
+  public List<ReportTile> getMissingTiles(final Bounds bounds, final long maxAge) {
+    return getMissingTiles(bounds, maxAge, Long.MAX_VALUE);
+  }
+
+  /**
+   * @param bounds
+   *          the area
+   * @param maxAge
+   *          the maximum age in milliseconds of a download, tiles downloaded longer ago are returned as missing
+   * @param requiredClosedSince
+   *          the registration time from which closed reports are needed, tiles of which fewer closed reports are known
+   *          are returned as missing
+   * @return the tiles of the given area that have not been downloaded (recently enough), or not with all the closed
+   *         reports that are needed
+   */
+  public List<ReportTile> getMissingTiles(final Bounds bounds, final long maxAge, final long requiredClosedSince) {
+    final long now = System.currentTimeMillis();
+    final List<ReportTile> result = getTiles(bounds);
+    result.removeIf(tile -> {
+      final Long downloadedAt = downloaded.get(tile);
+      return downloadedAt != null && now - downloadedAt <= maxAge && getClosedSince(tile) <= requiredClosedSince;
+    });
+    return result;
+  }
+
+  /**
+   * @param bounds
+   *          the area
+   * @return true if all tiles of the given area have been downloaded; false otherwise
+   */
+  public boolean isDownloaded(final Bounds bounds) {
+    return getMissingTiles(bounds, Long.MAX_VALUE).isEmpty();
+  }
+
+  /**
+   * @param tile
+   *          the tile
+   * @return the Epoch time of the last download of the given tile, or <code>null</code> if it was never downloaded
+   */
+  public Long getDownloadTime(final ReportTile tile) {
+    return downloaded.get(tile);
+  }
+
+  /**
+   * Records that the given tile has been downloaded.
+   *
+   * @param tile
+   *          the tile
+   * @param time
+   *          the Epoch time of the download
+   */
+  public void markDownloaded(final ReportTile tile, final long time) {
+    downloaded.put(tile, time);
+  }
+
+  /**
+   * Records a completed download of the given tile, and raises the generation of the tile.
+   *
+   * @param tile
+   *          the tile
+   * @param time
+   *          the Epoch time of the download
+   * @param reports
+   *          the reports of the tile that have been downloaded
+   * @param closedSince
+   *          the registration time from which the closed reports of the tile are known, {@link ReportFilter#ALL} if
+   *          all of them are known
+   */
+  public synchronized void recordDownload(
+    final ReportTile tile, final long time, final Collection<? extends ReportBAG> reports, final long closedSince
+  ) {
+    markDownloaded(tile, time);
+    updateModifiedSince(tile, reports);
+    setClosedSince(tile, closedSince);
+    generations.merge(tile, 1, Integer::sum);
+  }
+
+  /**
+   * @param tile
+   *          the tile
+   * @return the number of completed downloads of the given tile
+   */
+  public int getGeneration(final ReportTile tile) {
+    return generations.getOrDefault(tile, 0);
+  }
+
+  /**
+   * Records that the given tile has not been downloaded, so it will be downloaded again.
+   *
+   * @param tile
+   *          the tile
+   */
+  public void markNotDownloaded(final ReportTile tile) {
+    downloaded.remove(tile);
+  }
+
+  /**
+   * Forgets the high-water mark of the given tile, so all its reports will be downloaded again.
+   *
+   * @param tile
+   *          the tile
+   */
+  public void resetModifiedSince(final ReportTile tile) {
+    modifiedSince.remove(tile);
+  }
+
+  /**
+   * @param tile
+   *          the tile
+   * @return the most recent modification time of the known reports of the given tile, only reports that have been
+   *         modified after this time need to be downloaded. <code>null</code> if the reports of the tile are not known.
+   */
+  public Long getModifiedSince(final ReportTile tile) {
+    return modifiedSince.get(tile);
+  }
+
+  /**
+   * Raises the high-water mark of the given tile to the given time, if it is not already later.
+   *
+   * @param tile
+   *          the tile
+   * @param time
+   *          the Epoch time of the modification of a report in the tile
+   */
+  public void updateModifiedSince(final ReportTile tile, final long time) {
+    modifiedSince.merge(tile, time, Math::max);
+  }
+
+  /**
+   * Raises the high-water mark of the given tile to the most recent modification time of the given reports.
+   *
+   * @param tile
+   *          the tile
+   * @param reports
+   *          the reports of the tile that have been downloaded
+   */
+  public void updateModifiedSince(final ReportTile tile, final Collection<? extends ReportBAG> reports) {
+    reports.stream().mapToLong(ReportBAG::getModifiedAtTime).filter(time -> time != ReportDateFormat.NO_TIME).max()
+      .ifPresent(time -> updateModifiedSince(tile, time));
+  }
+
+  /**
+   * @param tile
+   *          the tile
+   * @return the registration time from which the closed reports of the tile are known, {@link ReportFilter#ALL} if
+   *         all of them are known
+   */
+  public long getClosedSince(final ReportTile tile) {
+    return closedSince.getOrDefault(tile, ReportFilter.ALL);
+  }
+
+  /**
+   * Records from which registration time the closed reports of the given tile are known.
+   *
+   * @param tile
+   *          the tile
+   * @param time
+   *          the Epoch time, {@link ReportFilter#ALL} if all closed reports are known
+   */
+  public void setClosedSince(final ReportTile tile, final long time) {
+    if (time == ReportFilter.ALL) {
+      closedSince.remove(tile);
+    } else {
+      closedSince.put(tile, time);
+    }
+  }
+
+  /**
+   * @param view
+   *          the area of interest
+   * @return the bounds of the downloaded tiles in the given area
+   */
+  public List<Bounds> getDownloadedBounds(final Bounds view) {
+    final List<Bounds> result = new ArrayList<>();
+    if (countTiles(view) > downloaded.size()) {
+      downloaded.keySet().stream().map(ReportTile::getBounds).filter(view::intersects).forEach(result::add);
+    } else {
+      getTiles(view).stream().filter(downloaded::containsKey).map(ReportTile::getBounds).forEach(result::add);
+    }
+    return result;
+  }
+
+  /**
+   * Forgets about all downloaded tiles.
+   */
+  public void clear() {
+    downloaded.clear();
+    modifiedSince.clear();
+    closedSince.clear();
+  }
+}
@@ -0,0 +1,98 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+
+/**
+ * Index of downloaded reports by the value of one of their attributes, for example the status code. Reports of which
+ * the attribute is <code>null</code> are not indexed.
+ *
+ * <p>
+ * The index is safe for concurrent reads. It is kept in sync with the reports of a
+ * {@link org.openstreetmap.josm.plugins.nl_pdok_report.ReportData}, which adds and removes the reports while holding
+ * its lock.
+ * </p>
+ *
+ * @author SanderH
+ * @param <K>
+ *          the type of the attribute
+ */
+public class ReportAttributeIndex<K> {
+  private final Function<ReportBAG, K> attribute;
+  private final Map<K, Set<ReportBAG>> buckets = new ConcurrentHashMap<>();
+
+  /**
+   * @param attribute
+   *          returns the value by which a report is indexed
+   */
+  public ReportAttributeIndex(final Function<ReportBAG, K> attribute) {
+    this.attribute = attribute;
+  }
+
+  /**
+   * @param report
+   *          the report that is added
+   */
+  public void add(final ReportBAG report) {
+    final K key = attribute.apply(report);
+    if (key != null) {
+      buckets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(report);
+    }
+  }
+
+  /**
+   * @param report
+   *          the report that is removed
+   */
+  public void remove(final ReportBAG report) {
+    final K key = attribute.apply(report);
+    if (key != null) {
+      buckets.computeIfPresent(key, (k, reports) -> {
+        reports.remove(report);
+        return reports.isEmpty() ? null : reports;
+      });
+    }
+  }
+
+  /**
+   * Removes all reports.
+   */
+  public void clear() {
+    buckets.clear();
+  }
+
+  /**
+   * @param key
+   *          the value of the attribute
+   * @return an unmodifiable view of the reports with the value, empty if there are none
+   */
+  public Set<ReportBAG> get(final K key) {
+    final Set<ReportBAG> reports = key == null ? null : buckets.get(key);
+    return reports == null ? Collections.emptySet() : Collections.unmodifiableSet(reports);
+  }
+
+  /**
+   * @param key
+   *          the value of the attribute
+   * @return the number of reports with the value
+   */
+  public int count(final K key) {
+    return get(key).size();
+  }
+
+  /**
+   * @return the number of reports for every value of the attribute that occurs
+   */
+  public Map<K, Integer> counts() {
+    final Map<K, Integer> result = new HashMap<>();
+    buckets.forEach((key, reports) -> result.put(key, reports.size()));
+    return result;
+  }
+}
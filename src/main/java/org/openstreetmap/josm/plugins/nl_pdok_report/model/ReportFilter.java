@@ -0,0 +1,163 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+
+/**
+ * The part of the report filter that hides old closed reports. Reports that are still open are always shown, closed
+ * reports (completed or rejected) only if they have been registered recently enough.
+ *
+ * <p>
+ * The filter is always applied in JOSM. If {@link ReportProperties#FILTER_ON_SERVER} is enabled, it is also applied by
+ * the API, so the reports that would be hidden anyway are never downloaded. This is off by default, because not every
+ * API supports the parameters for the registration time, and a request that is rejected fails the whole download.
+ * </p>
+ *
+ * <p>
+ * The maximum age is relative to the time of the request. A tile that has been downloaded with a filter only needs to be
+ * downloaded again when the maximum age grows, see {@link DownloadCoverage#getClosedSince(ReportTile)}.
+ * </p>
+ *
+ * <p>
+ * The active filter is only set on the event dispatch thread, from the controls of the filter dialog. The download
+ * threads only read it.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportFilter {
+  /** Status codes of reports that are still being handled. */
+  public static final List<String> OPEN_STATUS_CODES = Collections.unmodifiableList(
+    Arrays.asList("NIEUW", "IN_ONDERZOEK", "GOEDGEKEURD")
+  );
+  /** Status codes of reports that have been handled. */
+  public static final List<String> CLOSED_STATUS_CODES = Collections.unmodifiableList(
+    Arrays.asList("AFGEWEZEN", "AFGEROND")
+  );
+  /** Returned by {@link #getClosedSince(long)} if closed reports of any age are needed. */
+  public static final long ALL = Long.MIN_VALUE;
+  /** Length of a year, a month and a day in milliseconds, indexed by {@link ReportProperties#FILTER_HIDE_PERIOD}. */
+  private static final long[] PERIODS = { 31_536_000_000L, 2_592_000_000L, 86_400_000L };
+
+  private static volatile ReportFilter active;
+
+  /** Closed reports registered longer ago than this number of milliseconds are not needed, negative if all are. */
+  private final long closedMaxAge;
+
+  /**
+   * @param closedMaxAge
+   *          closed reports that have been registered longer ago than this number of milliseconds are not downloaded.
+   *          Negative to download all closed reports.
+   */
+  public ReportFilter(final long closedMaxAge) {
+    this.closedMaxAge = closedMaxAge;
+  }
+
+  /**
+   * @param hideClosed
+   *          true if old closed reports are hidden
+   * @param number
+   *          the number of periods after which closed reports are hidden
+   * @param period
+   *          0 for years, 1 for months, 2 for days
+   * @return the filter
+   */
+  public static ReportFilter of(final boolean hideClosed, final double number, final int period) {
+    if (!hideClosed || period < 0 || period >= PERIODS.length) {
+      return new ReportFilter(-1);
+    }
+    return new ReportFilter((long) (Math.max(0, number) * PERIODS[period]));
+  }
+
+  /**
+   * @return the filter that is stored in the preferences
+   */
+  public static ReportFilter fromPreferences() {
+    return of(
+      ReportProperties.FILTER_HIDE_CLOSED.get(), ReportProperties.FILTER_HIDE_NUMBER.get(),
+      ReportProperties.FILTER_HIDE_PERIOD.get()
+    );
+  }
+
+  /**
+   * @return the filter that is used for downloads, initially the one stored in the preferences
+   */
+  public static ReportFilter getActive() {
+    ReportFilter result = active;
+    if (result == null) {
+      result = fromPreferences();
+      active = result;
+    }
+    return result;
+  }
+
+  /**
+   * Sets the filter that is used for downloads.
+   *
+   * @param filter
+   *          the new filter
+   * @return true if the new filter lets through closed reports that the previous filter did not and the filter is
+   *         applied by the API, so the tiles that have already been downloaded are incomplete
+   */
+  public static boolean setActive(final ReportFilter filter) {
+    final ReportFilter previous = getActive();
+    active = filter;
+    return ReportProperties.FILTER_ON_SERVER.get() && filter.isWiderThan(previous);
+  }
+
+  /**
+   * @param other
+   *          another filter
+   * @return true if this filter lets through closed reports that the other one does not
+   */
+  public boolean isWiderThan(final ReportFilter other) {
+    if (closedMaxAge < 0) {
+      return other.closedMaxAge >= 0;
+    }
+    return other.closedMaxAge >= 0 && closedMaxAge > other.closedMaxAge;
+  }
+
+  /**
+   * @param now
+   *          the Epoch time of the request
+   * @return the Epoch time from which closed reports are needed, {@link #ALL} if closed reports of any age are needed
+   */
+  public long getClosedSince(final long now) {
+    return closedMaxAge < 0 ? ALL : now - closedMaxAge;
+  }
+
+  /**
+   * @param now
+   *          the Epoch time of the request
+   * @return the Epoch time from which closed reports are requested from the API, {@link #ALL} if all closed reports
+   *         are requested because the filter is only applied in JOSM
+   */
+  public long getRequestedClosedSince(final long now) {
+    return ReportProperties.FILTER_ON_SERVER.get() ? getClosedSince(now) : ALL;
+  }
+
+  /**
+   * @return true if not all closed reports are needed
+   */
+  public boolean isClosedFiltered() {
+    return closedMaxAge >= 0;
+  }
+
+  /**
+   * @param report
+   *          a downloaded report
+   * @param now
+   *          the current Epoch time
+   * @return true if the report would have been downloaded with this filter
+   */
+  public boolean accepts(final ReportBAG report, final long now) {
+    return !isClosedFiltered() || !CLOSED_STATUS_CODES.contains(report.getStatusCode())
+      || report.getReportedAtTime() == ReportDateFormat.NO_TIME || report.getReportedAtTime() >= getClosedSince(now);
+  }
+}
@@ -0,0 +1,191 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.AbstractReport;
+
+/**
+ * Spatial index of reports, so the reports within an area or near a point can be found without looking at all of them.
+ * The reports are kept in the cells of a regular grid in degrees, each report in the cell of its
+ * {@link AbstractReport#getMovingLatLon() current position}. A query only looks at the cells that intersect with the
+ * queried area, or at the occupied cells if these are fewer.
+ *
+ * <p>
+ * The index is safe for concurrent use. When a report is moved, {@link #update(AbstractReport)} has to be called.
+ * </p>
+ *
+ * @author SanderH
+ */
+public class ReportGridIndex {
+  /** Size of a cell in degrees, about 1 km in the Netherlands. */
+  private static final double CELL_SIZE = 0.01;
+  /** Length of a degree of latitude in meters. */
+  private static final double METERS_PER_DEGREE = 111_320;
+
+  private final Map<Long, Set<AbstractReport>> cells = new ConcurrentHashMap<>();
+  /** The cell in which each report is stored. */
+  private final Map<AbstractReport, Long> cellOf = new ConcurrentHashMap<>();
+
+  /**
+   * Adds a report, or moves it to the cell of its current position if it is already present.
+   *
+   * @param report
+   *          the report
+   */
+  public void add(final AbstractReport report) {
+    final LatLon position = report.getMovingLatLon();
+    if (position == null) {
+      return;
+    }
+    final long cell = cell(position.lon(), position.lat());
+    final Long previous = cellOf.put(report, cell);
+    if (previous != null && previous != cell) {
+      removeFromCell(previous, report);
+    }
+    cells.computeIfAbsent(cell, c -> ConcurrentHashMap.newKeySet()).add(report);
+  }
+
+  /**
+   * Moves a report to the cell of its current position, after it has been moved.
+   *
+   * @param report
+   *          the moved report
+   */
+  public void update(final AbstractReport report) {
+    if (cellOf.containsKey(report)) {
+      add(report);
+    }
+  }
+
+  /**
+   * @param report
+   *          the report that is removed
+   */
+  public void remove(final AbstractReport report) {
+    final Long cell = cellOf.remove(report);
+    if (cell != null) {
+      removeFromCell(cell, report);
+    }
+  }
+
+  private void removeFromCell(final long cell, final AbstractReport report) {
+    cells.computeIfPresent(cell, (c, reports) -> {
+      reports.remove(report);
+      return reports.isEmpty() ? null : reports;
+    });
+  }
+
+  /**
+   * Removes all reports.
+   */
+  public void clear() {
+    cells.clear();
+    cellOf.clear();
+  }
+
+  /**
+   * @param bounds
+   *          the area
+   * @return the reports of which the current position is within the area
+   */
+  public List<AbstractReport> query(final Bounds bounds) {
+    final List<AbstractReport> result = new ArrayList<>();
+    final int minX = index(bounds.getMinLon());
+    final int maxX = index(bounds.getMaxLon());
+    final int minY = index(bounds.getMinLat());
+    final int maxY = index(bounds.getMaxLat());
+    if ((long) (maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+      // A large area, it is faster to look at the occupied cells
+      cells.forEach((cell, reports) -> {
+        final int x = (int) (cell >> 32);
+        final int y = (int) (long) cell;
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+          addWithin(reports, bounds, result);
+        }
+      });
+    } else {
+      for (int x = minX; x <= maxX; x++) {
+        for (int y = minY; y <= maxY; y++) {
+          final Set<AbstractReport> reports = cells.get(key(x, y));
+          if (reports != null) {
+            addWithin(reports, bounds, result);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void addWithin(
+    final Set<AbstractReport> reports, final Bounds bounds, final List<AbstractReport> result
+  ) {
+    for (AbstractReport report : reports) {
+      final LatLon position = report.getMovingLatLon();
+      if (position != null && bounds.contains(position)) {
+        result.add(report);
+      }
+    }
+  }
+
+  /**
+   * @param center
+   *          the point
+   * @param radius
+   *          the maximum distance in meters
+   * @return the report closest to the point within the radius, <code>null</code> if there is none
+   */
+  public AbstractReport nearest(final LatLon center, final double radius) {
+    return nearest(center, radius, report -> true);
+  }
+
+  /**
+   * @param center
+   *          the point
+   * @param radius
+   *          the maximum distance in meters
+   * @param filter
+   *          only the reports for which this returns true are considered
+   * @return the report closest to the point within the radius that matches the filter, <code>null</code> if there is
+   *         none
+   */
+  public AbstractReport nearest(final LatLon center, final double radius, final Predicate<AbstractReport> filter) {
+    final double dLat = radius / METERS_PER_DEGREE;
+    final double dLon = dLat / Math.max(0.01, Math.cos(Math.toRadians(center.lat())));
+    final Bounds area = new Bounds(
+      Math.max(-90, center.lat() - dLat), Math.max(-180, center.lon() - dLon), Math.min(90, center.lat() + dLat),
+      Math.min(180, center.lon() + dLon)
+    );
+    AbstractReport closest = null;
+    double minDistance = radius;
+    for (AbstractReport report : query(area)) {
+      if (filter.test(report)) {
+        final double distance = report.getMovingLatLon().greatCircleDistance(center);
+        if (distance <= minDistance) {
+          minDistance = distance;
+          closest = report;
+        }
+      }
+    }
+    return closest;
+  }
+
+  private static int index(final double degrees) {
+    return (int) Math.floor(degrees / CELL_SIZE);
+  }
+
+  private static long cell(final double lon, final double lat) {
+    return key(index(lon), index(lat));
+  }
+
+  private static long key(final int x, final int y) {
+    return (long) x << 32 | y & 0xFFFF_FFFFL;
+  }
+}
@@ -0,0 +1,294 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+
+/**
+ * Columnar storage of the attributes of the downloaded reports. Instead of an object per attribute, every
+ * {@link ReportBAG} is a row in a set of primitive arrays: the times and numbers in <code>long</code> columns, the
+ * attributes that only take a few values as codes of a {@link StringDictionary} in <code>int</code> columns and the
+ * other strings in <code>String</code> columns. A {@link ReportBAG} only holds its row number and reads its attributes
+ * from here.
+ *
+ * <p>
+ * The columns are allocated in chunks, so growing the store never copies the rows. The row of a report is freed and
+ * cleared when the report is garbage collected, and is then reused for a new report. {@link #trim()} releases the
+ * chunks at the end that are no longer used, and the dictionary once no report is left.
+ * </p>
+ *
+ * <p>
+ * The columns are plain arrays, so writing a row does not publish it. Rows are written once, by the thread that
+ * creates the report, before the report is published. Another thread only sees the values if it got the report through
+ * a safe publication, for example a concurrent collection, a volatile field or a lock that the creating thread
+ * released after writing the row. Unlike the final fields of the report, the row is not visible to a thread that got
+ * the report through a data race.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportStore {
+  /** Value of a <code>long</code> column that stands for <code>null</code>, see {@link ReportDateFormat#NO_TIME}. */
+  public static final long NO_VALUE = ReportDateFormat.NO_TIME;
+
+  /** The <code>long</code> columns. */
+  public enum LongColumn {
+    REPORT_NUMBER, REPORTED_AT, STATUS_MODIFIED_AT, MODIFIED_AT
+  }
+
+  /** The <code>int</code> columns, containing codes of the {@link #getDictionary() dictionary}. */
+  public enum CodeColumn {
+    SOURCE, SOURCE_MAINTAINER_CODE, SOURCE_MAINTAINER_NAME, PRODUCT, STATUS, STATUS_CODE, OBJECT_TYPE
+  }
+
+  /** The <code>String</code> columns, for strings that are (mostly) unique. */
+  public enum TextColumn {
+    REPORT_NUMBER_FULL, EXPLANATION, OBJECT_ID, LOCATION_LINK
+  }
+
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private static final ReportStore INSTANCE = new ReportStore();
+
+  private final StringDictionary dictionary = new StringDictionary();
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+  private volatile Chunk[] chunks = new Chunk[0];
+  private int[] freeRows = new int[64];
+  private int freeCount;
+  private int rowCount;
+
+  ReportStore() {
+    // Use getInstance(), only tests create their own store
+  }
+
+  /**
+   * @return the store that all reports are kept in
+   */
+  public static ReportStore getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the dictionary of the {@link CodeColumn}s
+   */
+  public StringDictionary getDictionary() {
+    return dictionary;
+  }
+
+  /**
+   * Allocates a row for a new report. The row is freed when the report is garbage collected.
+   *
+   * @param owner
+   *          the report that the row belongs to, normally a {@link ReportBAG}
+   * @return the row number
+   */
+  public synchronized int allocate(final Object owner) {
+    freeCollected();
+    if (freeCount > 0 && freeCount == rowCount) {
+      // No report is left, for example after the layer has been removed, so start over with an empty store
+      trim();
+    }
+    final int row;
+    if (freeCount > 0) {
+      row = freeRows[--freeCount];
+    } else {
+      row = rowCount++;
+      if (row >> CHUNK_BITS == chunks.length) {
+        final Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+        grown[chunks.length] = new Chunk();
+        chunks = grown;
+      }
+    }
+    chunk(row).owners[row & CHUNK_SIZE - 1] = new RowReference(owner, collected, row);
+    return row;
+  }
+
+  private void freeCollected() {
+    Reference<?> reference;
+    while ((reference = collected.poll()) != null) {
+      final int row = ((RowReference) reference).row;
+      final Chunk chunk = chunk(row);
+      final int i = row & CHUNK_SIZE - 1;
+      chunk.owners[i] = null;
+      // Cleared, so a value that the next report does not write is never taken over from the previous one
+      for (long[] column : chunk.longs) {
+        column[i] = NO_VALUE;
+      }
+      for (int[] column : chunk.codes) {
+        column[i] = StringDictionary.NULL;
+      }
+      for (String[] column : chunk.texts) {
+        column[i] = null;
+      }
+      if (freeCount == freeRows.length) {
+        freeRows = Arrays.copyOf(freeRows, freeCount * 2);
+      }
+      freeRows[freeCount++] = row;
+    }
+  }
+
+  /**
+   * @return the number of rows that are in use
+   */
+  public synchronized int size() {
+    freeCollected();
+    return rowCount - freeCount;
+  }
+
+  /**
+   * Releases the memory that is no longer used: the chunks after the last row in use, and the dictionary if no row is
+   * in use. Rows are only freed when their report has been garbage collected.
+   */
+  public synchronized void trim() {
+    freeCollected();
+    int used = rowCount;
+    while (used > 0 && chunk(used - 1).owners[used - 1 & CHUNK_SIZE - 1] == null) {
+      used--;
+    }
+    final int newChunks = (used + CHUNK_SIZE - 1) >> CHUNK_BITS;
+    final int newRowCount = newChunks << CHUNK_BITS;
+    if (newRowCount >= rowCount) {
+      return;
+    }
+    int kept = 0;
+    for (int i = 0; i < freeCount; i++) {
+      if (freeRows[i] < newRowCount) {
+        freeRows[kept++] = freeRows[i];
+      }
+    }
+    freeCount = kept;
+    rowCount = newRowCount;
+    chunks = Arrays.copyOf(chunks, newChunks);
+    if (newChunks == 0) {
+      dictionary.clear();
+    }
+  }
+
+  /**
+   * Estimates the memory that the dictionary saves. Without it, every code of a row in use would be a string of its
+   * own, instead of one of the strings of the dictionary.
+   *
+   * @return the estimated number of bytes saved, based on the average size of the strings of the dictionary
+   */
+  public synchronized long getSavedBytes() {
+    freeCollected();
+    long cells = 0;
+    for (int row = 0; row < rowCount; row++) {
+      final Chunk chunk = chunk(row);
+      final int i = row & CHUNK_SIZE - 1;
+      if (chunk.owners[i] != null) {
+        for (int[] column : chunk.codes) {
+          if (column[i] != StringDictionary.NULL) {
+            cells++;
+          }
+        }
+      }
+    }
+    return Math.max(0, cells - dictionary.size()) * dictionary.getAverageSize();
+  }
+
+  private Chunk chunk(final int row) {
+    return chunks[row >> CHUNK_BITS];
+  }
+
+  /**
+   * @param row
+   *          the row
+   * @param column
+   *          the column
+   * @return the value, {@link #NO_VALUE} for <code>null</code>
+   */
+  public long getLong(final int row, final LongColumn column) {
+    return chunk(row).longs[column.ordinal()][row & CHUNK_SIZE - 1];
+  }
+
+  /**
+   * @param row
+   *          a row returned by {@link #allocate(Object)}
+   * @param column
+   *          the column
+   * @param value
+   *          the value, {@link #NO_VALUE} for <code>null</code>
+   */
+  public void setLong(final int row, final LongColumn column, final long value) {
+    chunk(row).longs[column.ordinal()][row & CHUNK_SIZE - 1] = value;
+  }
+
+  /**
+   * @param row
+   *          the row
+   * @param column
+   *          the column
+   * @return the value
+   */
+  public String getCode(final int row, final CodeColumn column) {
+    return dictionary.decode(chunk(row).codes[column.ordinal()][row & CHUNK_SIZE - 1]);
+  }
+
+  /**
+   * @param row
+   *          a row returned by {@link #allocate(Object)}
+   * @param column
+   *          the column
+   * @param value
+   *          the value, is encoded with the dictionary
+   */
+  public void setCode(final int row, final CodeColumn column, final String value) {
+    chunk(row).codes[column.ordinal()][row & CHUNK_SIZE - 1] = dictionary.encode(value);
+  }
+
+  /**
+   * @param row
+   *          the row
+   * @param column
+   *          the column
+   * @return the value
+   */
+  public String getText(final int row, final TextColumn column) {
+    return chunk(row).texts[column.ordinal()][row & CHUNK_SIZE - 1];
+  }
+
+  /**
+   * @param row
+   *          a row returned by {@link #allocate(Object)}
+   * @param column
+   *          the column
+   * @param value
+   *          the value
+   */
+  public void setText(final int row, final TextColumn column, final String value) {
+    chunk(row).texts[column.ordinal()][row & CHUNK_SIZE - 1] = value;
+  }
+
+  private static final class Chunk {
+    private final long[][] longs = new long[LongColumn.values().length][CHUNK_SIZE];
+    private final int[][] codes = new int[CodeColumn.values().length][CHUNK_SIZE];
+    private final String[][] texts = new String[TextColumn.values().length][CHUNK_SIZE];
+    /** Keeps the references to the reports reachable until they are enqueued. */
+    private final RowReference[] owners = new RowReference[CHUNK_SIZE];
+
+    Chunk() {
+      for (long[] column : longs) {
+        Arrays.fill(column, NO_VALUE);
+      }
+      for (int[] column : codes) {
+        Arrays.fill(column, StringDictionary.NULL);
+      }
+    }
+  }
+
+  private static final class RowReference extends PhantomReference<Object> {
+    private final int row;
+
+    RowReference(final Object owner, final ReferenceQueue<Object> queue, final int row) {
+      super(owner, queue);
+      this.row = row;
+    }
+  }
+}
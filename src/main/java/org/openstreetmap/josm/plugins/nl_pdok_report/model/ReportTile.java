@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * A tile in the standard web mercator tile grid (the same grid that is used by OSM map tiles). Reports are downloaded
+ * per tile, so the downloaded area can be tracked without storing arbitrary {@link Bounds}.
+ *
+ * @author SanderH
+ */
+public class ReportTile extends KeyIndexedObject {
+  /** Tiles further north or south can't be represented in web mercator. */
+  private static final double MAX_LAT = 85.05112877980659;
+
+  private final int zoom;
+  private final int x;
+  private final int y;
+
+  /**
+   * Main constructor.
+   *
+   * @param zoom
+   *          the zoom level of the tile grid
+   * @param x
+   *          the column of the tile, 0 being the column at 180° west
+   * @param y
+   *          the row of the tile, 0 being the northernmost row
+   */
+  public ReportTile(final int zoom, final int x, final int y) {
+    super(zoom + "/" + x + '/' + y);
+    this.zoom = zoom;
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * @param zoom
+   *          the zoom level of the tile grid
+   * @param latLon
+   *          the coordinate
+   * @return the tile at the given zoom level that contains the coordinate
+   */
+  public static ReportTile fromLatLon(final int zoom, final LatLon latLon) {
+    return new ReportTile(zoom, lon2x(zoom, latLon.lon()), lat2y(zoom, latLon.lat()));
+  }
+
+  /**
+   * @param zoom
+   *          the zoom level of the tile grid
+   * @param lon
+   *          the longitude
+   * @return the column of the tile containing the given longitude
+   */
+  public static int lon2x(final int zoom, final double lon) {
+    final int n = 1 << zoom;
+    return clamp((int) Math.floor((lon + 180) / 360 * n), n);
+  }
+
+  /**
+   * @param zoom
+   *          the zoom level of the tile grid
+   * @param lat
+   *          the latitude
+   * @return the row of the tile containing the given latitude
+   */
+  public static int lat2y(final int zoom, final double lat) {
+    final int n = 1 << zoom;
+    final double latRad = Math.toRadians(Math.max(-MAX_LAT, Math.min(MAX_LAT, lat)));
+    return clamp((int) Math.floor((1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2 * n), n);
+  }
+
+  private static int clamp(final int value, final int n) {
+    return Math.max(0, Math.min(n - 1, value));
+  }
+
+  private static double x2lon(final int zoom, final int x) {
+    return x / (double) (1 << zoom) * 360 - 180;
+  }
+
+  private static double y2lat(final int zoom, final int y) {
+    return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / (double) (1 << zoom)))));
+  }
+
+  public int getZoom() {
+    return zoom;
+  }
+
+  public int getX() {
+    return x;
+  }
+
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * Unlike {@link Bounds#contains(LatLon)}, a coordinate on the border of two tiles is only contained by one of them,
+   * the tile returned by {@link #fromLatLon(int, LatLon)}.
+   *
+   * @param latLon
+   *          the coordinate, can be <code>null</code>
+   * @return true if the coordinate lies within this tile
+   */
+  public boolean contains(final LatLon latLon) {
+    return latLon != null && lon2x(zoom, latLon.lon()) == x && lat2y(zoom, latLon.lat()) == y;
+  }
+
+  /**
+   * @return the four tiles of the next zoom level that cover this tile, the top row first
+   */
+  public ReportTile[] getChildren() {
+    return new ReportTile[] {
+      new ReportTile(zoom + 1, 2 * x, 2 * y), new ReportTile(zoom + 1, 2 * x + 1, 2 * y),
+      new ReportTile(zoom + 1, 2 * x, 2 * y + 1), new ReportTile(zoom + 1, 2 * x + 1, 2 * y + 1)
+    };
+  }
+
+  /**
+   * @return the area covered by this tile
+   */
+  public Bounds getBounds() {
+    return new Bounds(y2lat(zoom, y + 1), x2lon(zoom, x), y2lat(zoom, y), x2lon(zoom, x + 1));
+  }
+
+  /**
+   * @return the center of this tile
+   */
+  public LatLon getCenter() {
+    return getBounds().getCenter();
+  }
+
+  @Override
+  public String toString() {
+    return getKey();
+  }
+}
@@ -0,0 +1,101 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns a small integer code to every distinct string, so a column of strings that only take a few values can be
+ * stored as an <code>int[]</code>. Codes are never reused, the dictionary only grows until it is
+ * {@link #clear() cleared}.
+ *
+ * <p>
+ * The dictionary is safe for concurrent use. A code that has been returned by {@link #encode(String)} can be decoded
+ * by any thread that got it from the encoding thread.
+ * </p>
+ *
+ * @author SanderH
+ */
+public class StringDictionary {
+  /** The code of <code>null</code>. */
+  public static final int NULL = -1;
+
+  private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+  private volatile String[] values = new String[64];
+  private int size;
+  /** Estimated size of the strings in bytes. */
+  private long bytes;
+
+  /**
+   * @param value
+   *          a string, can be <code>null</code>
+   * @return the code of the string, {@link #NULL} for <code>null</code>
+   */
+  public int encode(final String value) {
+    if (value == null) {
+      return NULL;
+    }
+    final Integer code = codes.get(value);
+    return code == null ? add(value) : code;
+  }
+
+  private synchronized int add(final String value) {
+    final Integer existing = codes.get(value);
+    if (existing != null) {
+      return existing;
+    }
+    String[] current = values;
+    if (size == current.length) {
+      current = Arrays.copyOf(current, size * 2);
+    }
+    current[size] = value;
+    // Publish the value before the code, so decode never sees a code without its value
+    values = current;
+    codes.put(value, size);
+    bytes += estimateSize(value);
+    return size++;
+  }
+
+  /**
+   * @return the size of a string in bytes, for a string with only Latin-1 characters on a 64-bit JVM with compressed
+   *         pointers
+   */
+  private static long estimateSize(final String value) {
+    // The String object and its byte array, both aligned to 8 bytes
+    return 24 + (16 + value.length() + 7) / 8 * 8;
+  }
+
+  /**
+   * @param code
+   *          a code returned by {@link #encode(String)}
+   * @return the string with the code, <code>null</code> for {@link #NULL}
+   */
+  public String decode(final int code) {
+    return code == NULL ? null : values[code];
+  }
+
+  /**
+   * Removes all strings. Only allowed when none of the codes is in use anymore, they would decode to other strings.
+   */
+  public synchronized void clear() {
+    values = new String[64];
+    codes.clear();
+    size = 0;
+    bytes = 0;
+  }
+
+  /**
+   * @return the number of distinct strings
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * @return the estimated average size of the strings in bytes, 0 if there are none
+   */
+  public synchronized long getAverageSize() {
+    return size == 0 ? 0 : bytes / size;
+  }
+}
@@ -11,8 +11,6 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.HttpURLConnection;
-import java.net.InetSocketAddress;
-import java.net.Proxy;
 import java.net.URL;
 import java.net.URLConnection;
 import java.text.MessageFormat;
@@ -25,19 +23,22 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.security.cert.X509Certificate;
 
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
+
 /**
  * This utility class provides an abstraction layer for sending multipart HTTP POST requests to a web server.
  * 
  * @author www.codejava.net
  * @see {@link https://www.codejava.net/java-se/networking/upload-files-by-sending-multipart-request-programmatically}
  */
-public class MultipartUtility {
+public class MultipartUtility implements AutoCloseable {
   private final String boundary;
   private static final String LINE_FEED = "\r\n";
   private HttpURLConnection httpConn;
   private String charset;
   private OutputStream outputStream;
   private PrintWriter writer;
+  private boolean finished;
 
   /**
    * This constructor initializes a new HTTP POST request with content type is set to multipart/form-data
@@ -53,17 +54,7 @@ public class MultipartUtility {
     // creates a unique boundary based on time stamp
     boundary = "+++" + System.currentTimeMillis() + "+++";
 
-    if (useFiddlerProxy)
-    {
-      Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("127.0.0.1", 8888));
-      httpConn = (HttpURLConnection) requestURL.openConnection(proxy);
-      TrustFiddlerSSL();
-    }
-    else
-    {
-      httpConn = (HttpURLConnection) requestURL.openConnection();
-    }
-    httpConn.setUseCaches(false);
+    httpConn = ReportHttpClient.openConnection(requestURL, null, useFiddlerProxy);
     httpConn.setDoOutput(true); // indicates POST method
     httpConn.setDoInput(true);
     httpConn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
@@ -152,6 +143,16 @@ public class MultipartUtility {
    * @throws IOException
    */
   public MultiPartResponse finish() throws IOException {
+    finished = true;
+    try {
+      return readResponse();
+    } finally {
+      // Also when the request fails, so the connection is never left registered as active
+      ReportHttpClient.release(httpConn);
+    }
+  }
+
+  private MultiPartResponse readResponse() throws IOException {
     MultiPartResponse response = new MultiPartResponse();
     response.Message = new StringBuilder();
 
@@ -165,24 +166,22 @@ public class MultipartUtility {
     if (response.ResponseCode == HttpURLConnection.HTTP_OK ||
     	response.ResponseCode == HttpURLConnection.HTTP_CREATED)
     {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(httpConn.getInputStream()));
+      BufferedReader reader = new BufferedReader(new InputStreamReader(ReportHttpClient.getInputStream(httpConn)));
       String line = null;
       while ((line = reader.readLine()) != null) {
         response.Message.append(line);
       }
       reader.close();
       response.ResponseReference = httpConn.getHeaderField("Location");
-      httpConn.disconnect();
     } else if (response.ResponseCode == HttpURLConnection.HTTP_BAD_REQUEST || 
                response.ResponseCode == HttpURLConnection.HTTP_UNAUTHORIZED)
     {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(httpConn.getErrorStream()));
+      BufferedReader reader = new BufferedReader(new InputStreamReader(ReportHttpClient.getErrorStream(httpConn)));
       String line = null;
       while ((line = reader.readLine()) != null) {
         response.Message.append(line);
       }
       reader.close();
-      httpConn.disconnect();
     } else {
       throw new IOException(
         MessageFormat
@@ -196,6 +195,17 @@ public class MultipartUtility {
   /**
    * Only to be called when using Fiddler proxy
    */
+  /**
+   * Closes the connection without sending the request, if {@link #finish()} has not been called, for example because
+   * the request could not be written.
+   */
+  @Override
+  public void close() {
+    if (!finished) {
+      ReportHttpClient.discard(httpConn);
+    }
+  }
+
   public static void TrustFiddlerSSL() {
     try {
       // Create a trust manager that does not validate certificate chains
@@ -3,6 +3,8 @@ package org.openstreetmap.josm.plugins.nl_pdok_report.utils;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.swing.JOptionPane;
 
 import org.openstreetmap.josm.gui.MainApplication;
@@ -18,7 +20,8 @@ public final class PluginState {
 
   private static boolean submittingChangeset;
 
-  private static int runningDownloads;
+  /** Downloads run on several threads at once. */
+  private static final AtomicInteger runningDownloads = new AtomicInteger();
   /** Images that have to be uploaded. */
   private static int reportsToUpload;
   /** Images that have been uploaded. */
@@ -32,18 +35,16 @@ public final class PluginState {
    * Called when a download is started.
    */
   public static void startDownload() {
-    runningDownloads++;
+    runningDownloads.incrementAndGet();
   }
 
   /**
    * Called when a download is finished.
    */
   public static void finishDownload() {
-    if (runningDownloads == 0) {
+    if (runningDownloads.getAndUpdate(n -> Math.max(0, n - 1)) == 0) {
       Logging.warn("The amount of running downloads is equal to 0");
-      return;
     }
-    runningDownloads--;
   }
 
   /**
@@ -52,7 +53,7 @@ public final class PluginState {
    * @return true if the plugin is downloading; false otherwise.
    */
   public static boolean isDownloading() {
-    return runningDownloads > 0;
+    return runningDownloads.get() > 0;
   }
 
   /**
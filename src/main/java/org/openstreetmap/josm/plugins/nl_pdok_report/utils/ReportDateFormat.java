@@ -0,0 +1,104 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.utils;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Formats the times of reports for display. The formatters are immutable and thread-safe, and are created once for
+ * every pattern, like {@link ReportProperties#DATE_FORMAT}, instead of once for every call.
+ *
+ * <p>
+ * The patterns are in the syntax of {@link java.text.SimpleDateFormat}, in which the stored patterns have always been
+ * written. The few letters that mean something else for a {@link DateTimeFormatter} are translated: <code>u</code> is
+ * the number of the day of the week (1 is Monday) and a repeated <code>a</code> is a single AM/PM marker. A pattern
+ * that still can't be used is replaced by the default of {@link ReportProperties#DATE_FORMAT}.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportDateFormat {
+  /** Value of a time that is not known. */
+  public static final long NO_TIME = Long.MIN_VALUE;
+
+  private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+  private static final DateTimeFormatter DEFAULT = ofPattern(ReportProperties.DATE_FORMAT.getDefaultValue());
+
+  private ReportDateFormat() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * @param time
+   *          the Epoch time in milliseconds, {@link #NO_TIME} if it is not known
+   * @param pattern
+   *          the pattern, see {@link java.text.SimpleDateFormat}
+   * @return the time in the time zone of the system, an empty string if it is not known
+   */
+  public static String format(final long time, final String pattern) {
+    if (time == NO_TIME) {
+      return "";
+    }
+    final Instant instant = Instant.ofEpochMilli(time);
+    try {
+      return getFormatter(pattern).format(instant);
+    } catch (DateTimeException e) {
+      // The pattern contains a field that a point in time does not have
+      Logging.log(Logging.LEVEL_WARN, "Could not format time with pattern " + pattern, e);
+      FORMATTERS.put(pattern, DEFAULT);
+      return DEFAULT.format(instant);
+    }
+  }
+
+  private static DateTimeFormatter getFormatter(final String pattern) {
+    return FORMATTERS.computeIfAbsent(pattern, p -> {
+      try {
+        return ofPattern(p);
+      } catch (IllegalArgumentException e) {
+        Logging.log(Logging.LEVEL_WARN, "Invalid date format " + p + ", the default format is used instead", e);
+        return DEFAULT;
+      }
+    });
+  }
+
+  /**
+   * @param pattern
+   *          a pattern in the syntax of {@link java.text.SimpleDateFormat}
+   * @return the formatter, in the time zone of the system
+   * @throws IllegalArgumentException
+   *           if the pattern is not valid
+   */
+  static DateTimeFormatter ofPattern(final String pattern) {
+    final DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder();
+    final StringBuilder segment = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < pattern.length(); i++) {
+      final char c = pattern.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      }
+      if (!quoted && c == 'u') {
+        int count = 1;
+        while (i + 1 < pattern.length() && pattern.charAt(i + 1) == 'u') {
+          count++;
+          i++;
+        }
+        builder.appendPattern(segment.toString());
+        segment.setLength(0);
+        builder.appendValue(ChronoField.DAY_OF_WEEK, count);
+      } else if (quoted || c != 'a' || i == 0 || pattern.charAt(i - 1) != 'a') {
+        segment.append(c);
+      }
+    }
+    return builder.appendPattern(segment.toString()).toFormatter(Locale.US).withZone(ZoneId.systemDefault());
+  }
+}
@@ -74,6 +74,15 @@ public final class ReportProperties {
       }
     }
 
+    /**
+     * @return true if this API can be used, false if it needs an API key that is not set
+     */
+    public boolean isKeySet()
+    {
+      final String token = getToken();
+      return !needsKey || token != null && !token.trim().isEmpty();
+    }
+
     public static REPORT_API fromPrefId(String prefId) {
       for (REPORT_API mode : REPORT_API.values()) {
         if (mode.getPrefId().equals(prefId)) {
@@ -115,6 +124,44 @@ public final class ReportProperties {
   public static final StringProperty API_PROXY_URL = new StringProperty("nl.bag.pdok.terugmeldapi.api.proxy_url", "https://terugmeldingen.proxy.tools4osm.nl/v2");
   public static final StringProperty API_PROXY_URL_ACT = new StringProperty("nl.bag.pdok.terugmeldapi.api.proxy_act_url", "https://terugmeldingen.proxy.tools4osm.nl/act/v2");
   
+  /** Number of seconds to wait for a connection to the report API */
+  public static final IntegerProperty HTTP_CONNECT_TIMEOUT = new IntegerProperty("nl.bag.pdok.terugmeldapi.http.connect_timeout", 15);
+  /** Number of seconds to wait for data from the report API */
+  public static final IntegerProperty HTTP_READ_TIMEOUT = new IntegerProperty("nl.bag.pdok.terugmeldapi.http.read_timeout", 60);
+  /** Number of times a failed download is retried */
+  public static final IntegerProperty HTTP_MAX_RETRIES = new IntegerProperty("nl.bag.pdok.terugmeldapi.http.max_retries", 3);
+  /** Maximum number of simultaneous requests to one host */
+  public static final IntegerProperty MAX_CONNECTIONS_PER_HOST = new IntegerProperty("nl.bag.pdok.terugmeldapi.http.max_connections_per_host", 4);
+  /** Run downloads and uploads on virtual threads, if the Java version supports them */
+  public static final BooleanProperty VIRTUAL_THREADS = new BooleanProperty("nl.bag.pdok.terugmeldapi.http.virtual_threads", true);
+
+  /** Send the bbox of a download in RD (EPSG:28992) instead of EPSG:4326 */
+  public static final BooleanProperty API_BBOX_RD = new BooleanProperty("nl.bag.pdok.terugmeldapi.api.bbox_rd", true);
+  /** Drop downloaded reports outside the requested bounds, for backends that ignore the bbox */
+  public static final BooleanProperty CLIP_TO_BOUNDS = new BooleanProperty("nl.bag.pdok.terugmeldapi.download.clip_to_bounds", true);
+
+  /** Zoom level of the tiles in which reports are downloaded */
+  public static final IntegerProperty DOWNLOAD_TILE_ZOOM = new IntegerProperty("nl.bag.pdok.terugmeldapi.download.tile_zoom", 14);
+  /** Number of seconds after which a downloaded tile is downloaded again */
+  public static final IntegerProperty DOWNLOAD_TILE_MAX_AGE = new IntegerProperty("nl.bag.pdok.terugmeldapi.download.tile_max_age", 300);
+  /** Number of milliseconds the view has to be unchanged before the visible area is downloaded */
+  public static final IntegerProperty DOWNLOAD_DEBOUNCE = new IntegerProperty("nl.bag.pdok.terugmeldapi.download.debounce", 500);
+  /** Maximum number of tiles per minute that are downloaded before they are visible, 0 to disable prefetching */
+  public static final IntegerProperty PREFETCH_BUDGET = new IntegerProperty("nl.bag.pdok.terugmeldapi.download.prefetch_budget", 60);
+  /** Tiles for which more reports than this are downloaded are split into four smaller tiles, 0 to never split */
+  public static final IntegerProperty TILE_SPLIT_THRESHOLD = new IntegerProperty("nl.bag.pdok.terugmeldapi.download.tile_split_threshold", 2000);
+  /** Maximum number of times a tile is split */
+  public static final IntegerProperty TILE_SPLIT_MAX_DEPTH = new IntegerProperty("nl.bag.pdok.terugmeldapi.download.tile_split_max_depth", 3);
+  /** Only download the reports that have been modified since the previous download of an area */
+  public static final BooleanProperty DELTA_SYNC = new BooleanProperty("nl.bag.pdok.terugmeldapi.download.delta_sync", true);
+
+  /** Keep downloaded reports in a cache on disk, so they are shown right away in the next session */
+  public static final BooleanProperty CACHE_ENABLED = new BooleanProperty("nl.bag.pdok.terugmeldapi.cache.enabled", true);
+  /** Maximum size of the report cache in MiB */
+  public static final IntegerProperty CACHE_MAX_SIZE = new IntegerProperty("nl.bag.pdok.terugmeldapi.cache.max_size", 50);
+  /** Number of days after which cached reports are no longer used */
+  public static final IntegerProperty CACHE_MAX_AGE = new IntegerProperty("nl.bag.pdok.terugmeldapi.cache.max_age", 30);
+
   public static final IntegerProperty MAPOBJECT_ICON_SIZE = new IntegerProperty("nl.bag.pdok.terugmeldapi.mapobjects.iconsize", 32);
   public static final StringProperty DOWNLOAD_MODE = new StringProperty("nl.bag.pdok.terugmeldapi.download-mode", ReportDownloader.DOWNLOAD_MODE.DEFAULT.getPrefId());
   public static final StringProperty START_DIR = new StringProperty("nl.bag.pdok.terugmeldapi.start-directory", System.getProperty("user.home"));
@@ -122,6 +169,8 @@ public final class ReportProperties {
   public static final BooleanProperty FILTER_HIDE_CLOSED = new BooleanProperty("nl.bag.pdok.terugmeldapi.filter.hideclosed", true);
   public static final DoubleProperty FILTER_HIDE_NUMBER = new DoubleProperty("nl.bag.pdok.terugmeldapi.filter.hidenumber", 1);
   public static final IntegerProperty FILTER_HIDE_PERIOD = new IntegerProperty("nl.bag.pdok.terugmeldapi.filter.hideperiod", 2);
+  /** Also leave the hidden closed reports out of the requests, only for an API that supports filtering on tijdstipRegistratie */
+  public static final BooleanProperty FILTER_ON_SERVER = new BooleanProperty("nl.bag.pdok.terugmeldapi.filter.server", false);
 
   /**
    * @see OsmDataLayer#PROPERTY_BACKGROUND_COLOR
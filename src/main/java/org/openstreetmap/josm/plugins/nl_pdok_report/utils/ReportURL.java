@@ -6,14 +6,21 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportFilter;
 import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.api.JsonNewReportEncoder;
 import org.openstreetmap.josm.tools.Logging;
 
 public final class ReportURL {
@@ -21,10 +28,23 @@ public final class ReportURL {
   private static final String DEFAULT_API_URL = "https://api.kadaster.nl/tms/v2/terugmeldingen";
   private static final String DEFAULT_API_URL_ACT = "https://api.acceptatie.kadaster.nl/tms/v2/terugmeldingen";
   private static final String REQUEST_API_KEY_URL = "https://formulieren.kadaster.nl/aanvragen_api_key_terumelding_api";
-  private static final SimpleDateFormat API_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+  private static final DateTimeFormatter API_DATE_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE;
   private static final String REPORT_TYPE = "BAG";
-  private static final String REPORT_STATUS_CODES = "NIEUW,IN_ONDERZOEK,GOEDGEKEURD,AFGEWEZEN,AFGEROND";
+  private static final String REPORT_STATUS_CODES = String.join(",", ReportFilter.OPEN_STATUS_CODES) + ','
+    + String.join(",", ReportFilter.CLOSED_STATUS_CODES);
   private static final String REPORT_CRS_4326 = "https://www.opengis.net/def/crs/EPSG/0/4326";
+  private static final String REPORT_CRS_28992 = "https://www.opengis.net/def/crs/EPSG/0/28992";
+  /** Query parameter to only request reports with a tijdstipWijziging at or after the given time. */
+  private static final String MODIFIED_SINCE_PARAM = "tijdstipWijzigingVanaf";
+  /**
+   * Query parameter to only request reports with a tijdstipRegistratie at or after the given time. The registration
+   * parameters are only sent if {@link ReportProperties#FILTER_ON_SERVER} is enabled.
+   */
+  private static final String REGISTERED_FROM_PARAM = "tijdstipRegistratieVanaf";
+  /** Query parameter to only request reports with a tijdstipRegistratie at or before the given time. */
+  private static final String REGISTERED_UNTIL_PARAM = "tijdstipRegistratieTotEnMet";
+  private static final DateTimeFormatter API_DATE_TIME_FORMAT = DateTimeFormatter
+    .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSX", Locale.ROOT).withZone(ZoneOffset.UTC);
   private static final String DEFAULT_API_PROXY_URL = "https://terugmeldingen.proxy.tools4osm.nl/v2/terugmeldingen";
   private static final String DEFAULT_API_PROXY_URL_ACT = "https://terugmeldingen.proxy.tools4osm.nl/act/v2/terugmeldingen";
 
@@ -84,18 +104,113 @@ public final class ReportURL {
   }
 
   /**
-   * @return the URL where you'll find the reports as JSON
+   * @param bounds
+   *          the area for which the reports are requested, or <code>null</code> to request all reports
+   * @return the URL where you'll find the reports within the given bounds as JSON
    */
   public static URL downloadReportURL(Bounds bounds) {
+    return downloadReportURL(bounds, null);
+  }
+
+  /**
+   * @param bounds
+   *          the area for which the reports are requested, or <code>null</code> to request all reports
+   * @param modifiedSince
+   *          if not <code>null</code>, only the reports that have been modified at or after this time are requested
+   * @return the URL where you'll find the (modified) reports within the given bounds as JSON
+   */
+  public static URL downloadReportURL(Bounds bounds, Date modifiedSince) {
+    return downloadReportURL(bounds, modifiedSince, null, null, null);
+  }
+
+  /**
+   * @param bounds
+   *          the area for which the reports are requested, or <code>null</code> to request all reports
+   * @param modifiedSince
+   *          if not <code>null</code>, only the reports that have been modified at or after this time are requested
+   * @param statusCodes
+   *          the status codes of the requested reports, or <code>null</code> to request reports with any status
+   * @param registeredFrom
+   *          if not <code>null</code>, only the reports that have been registered at or after this time are requested
+   * @param registeredUntil
+   *          if not <code>null</code>, only the reports that have been registered at or before this time are requested
+   * @return the URL where you'll find the matching reports within the given bounds as JSON
+   */
+  public static URL downloadReportURL(
+    Bounds bounds, Date modifiedSince, Collection<String> statusCodes, Date registeredFrom, Date registeredUntil
+  ) {
     Map<String, String> querystring = new HashMap<>();
-    querystring.put("peildatum", API_DATE_FORMAT.format(new Date(System.currentTimeMillis())));
+    querystring.put("peildatum", API_DATE_FORMAT.format(LocalDate.now()));
     querystring.put("registratie", REPORT_TYPE);
-    querystring.put("statusCode", REPORT_STATUS_CODES);
+    querystring.put("statusCode", statusCodes == null ? REPORT_STATUS_CODES : String.join(",", statusCodes));
     querystring.put("crs", REPORT_CRS_4326);
+    if (bounds != null) {
+      if (ReportProperties.API_BBOX_RD.get()) {
+        querystring.put("bbox", bboxRD(bounds));
+        querystring.put("bbox-crs", REPORT_CRS_28992);
+      } else {
+        querystring.put("bbox", bbox4326(bounds));
+        querystring.put("bbox-crs", REPORT_CRS_4326);
+      }
+    }
+    if (modifiedSince != null) {
+      querystring.put(MODIFIED_SINCE_PARAM, formatDateTime(modifiedSince));
+    }
+    if (registeredFrom != null) {
+      querystring.put(REGISTERED_FROM_PARAM, formatDateTime(registeredFrom));
+    }
+    if (registeredUntil != null) {
+      querystring.put(REGISTERED_UNTIL_PARAM, formatDateTime(registeredUntil));
+    }
 
     return string2URL(getBaseApiUrl(), "", queryString(querystring));
   }
 
+  private static String formatDateTime(Date date) {
+    return API_DATE_TIME_FORMAT.format(date.toInstant());
+  }
+
+  /**
+   * Formats the given {@link Bounds} as bbox parameter in EPSG:4326, in the same axis order as the coordinates in the
+   * GeoJSON returned by the API (longitude first).
+   *
+   * @param bounds
+   *          the {@link Bounds} to format
+   * @return the bbox as <code>minLon,minLat,maxLon,maxLat</code>
+   */
+  static String bbox4326(Bounds bounds) {
+    return String.format(
+      Locale.ROOT, "%.7f,%.7f,%.7f,%.7f", bounds.getMinLon(), bounds.getMinLat(), bounds.getMaxLon(), bounds.getMaxLat()
+    );
+  }
+
+  /**
+   * Formats the given {@link Bounds} as bbox parameter in EPSG:28992 (RD New). As the RD grid is not aligned with the
+   * meridians, all four corners are transformed and the enclosing rectangle is used.
+   *
+   * @param bounds
+   *          the {@link Bounds} to format
+   * @return the bbox as <code>minX,minY,maxX,maxY</code> in meters
+   */
+  static String bboxRD(Bounds bounds) {
+    final LatLon[] corners = {
+      new LatLon(bounds.getMinLat(), bounds.getMinLon()), new LatLon(bounds.getMinLat(), bounds.getMaxLon()),
+      new LatLon(bounds.getMaxLat(), bounds.getMinLon()), new LatLon(bounds.getMaxLat(), bounds.getMaxLon())
+    };
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (LatLon corner : corners) {
+      final LatLon rd = JsonNewReportEncoder.reportLatLon(corner);
+      minX = Math.min(minX, rd.getX());
+      minY = Math.min(minY, rd.getY());
+      maxX = Math.max(maxX, rd.getX());
+      maxY = Math.max(maxY, rd.getY());
+    }
+    return String.format(Locale.ROOT, "%.3f,%.3f,%.3f,%.3f", minX, minY, maxX, maxY);
+  }
+
   /**
    * @return the URL where you'll find an empty result useful for validating the API key
    * 
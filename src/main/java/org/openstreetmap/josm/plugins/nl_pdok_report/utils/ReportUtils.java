@@ -21,6 +21,7 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.plugins.nl_pdok_report.AbstractReport;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportLayer;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportDownloader;
 import org.openstreetmap.josm.tools.I18n;
 
 /**
@@ -199,7 +200,10 @@ public final class ReportUtils {
     }
     StringBuilder ret = new StringBuilder();
     if (PluginState.isDownloading()) {
-      ret.append(I18n.tr("Downloading reports"));
+      final int pending = ReportDownloader.getPendingDownloads();
+      ret.append(
+        I18n.trn("Downloading reports: {0} tile remaining", "Downloading reports: {0} tiles remaining", pending, pending)
+      );
     } else if (ReportLayer.hasInstance() && !ReportLayer.getInstance().getData().getReports().isEmpty()) {
       ret.append(I18n.tr("Total reports: {0}", ReportLayer.getInstance().getToolTipText()));
     } else if (PluginState.isSubmittingChangeset()) {
@@ -1,20 +1,25 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.nl_pdok_report.utils.api;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
-import java.util.Locale;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import jakarta.json.JsonArray;
 import jakarta.json.JsonNumber;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParser.Event;
 
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
 import org.openstreetmap.josm.tools.Logging;
 
 public final class JsonDecoder {
@@ -56,6 +61,93 @@ public final class JsonDecoder {
     return result;
   }
 
+  /**
+   * Parses a GeoJSON FeatureCollection from the given {@link JsonParser} into a {@link Collection} of the desired Java
+   * objects. In contrast to {@link #decodeFeatureCollection(JsonObject, Function)} the FeatureCollection is never held
+   * in memory as a whole, only one feature at a time is read into a {@link JsonObject} and handed to the decoder.
+   *
+   * @param <T>
+   *          feature type
+   * @param parser
+   *          the {@link JsonParser}, positioned before the start of the FeatureCollection
+   * @param featureDecoder
+   *          feature decoder which transforms JSON objects to Java objects
+   * @return a {@link Collection} of the decoded features, in the order in which they were read. The return value will
+   *         not be <code>null</code>.
+   * @throws jakarta.json.JsonException
+   *           if the input is not valid JSON
+   */
+  public static <T> Collection<T> decodeFeatureCollection(
+    final JsonParser parser, Function<JsonObject, T> featureDecoder
+  ) {
+    final Collection<T> result = new ArrayList<>();
+    decodeFeatureCollection(parser, featureDecoder, result::add);
+    return result;
+  }
+
+  /**
+   * Parses a GeoJSON FeatureCollection from the given {@link JsonParser} and hands each decoded feature to the
+   * consumer as soon as it has been read. Nothing is collected, so this can be used for inputs of any size.
+   *
+   * @param <T>
+   *          feature type
+   * @param parser
+   *          the {@link JsonParser}, positioned before the start of the FeatureCollection
+   * @param featureDecoder
+   *          feature decoder which transforms JSON objects to Java objects
+   * @param consumer
+   *          receives the decoded features that are not <code>null</code>, in the order in which they were read
+   * @throws jakarta.json.JsonException
+   *           if the input is not valid JSON
+   */
+  public static <T> void decodeFeatureCollection(
+    final JsonParser parser, Function<JsonObject, T> featureDecoder, Consumer<T> consumer
+  ) {
+    if (!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+      return;
+    }
+    // Stop reading when the download has been cancelled, also outside of the features
+    while (parser.hasNext() && !Thread.currentThread().isInterrupted()) {
+      final Event event = parser.next();
+      if (event == Event.END_OBJECT) {
+        break;
+      }
+      if (event != Event.KEY_NAME) {
+        continue;
+      }
+      final String key = parser.getString();
+      final Event value = parser.next();
+      if ("type".equals(key) && value == Event.VALUE_STRING && !"FeatureCollection".equals(parser.getString())) {
+        return;
+      } else if ("features".equals(key) && value == Event.START_ARRAY) {
+        decodeFeatures(parser, featureDecoder, consumer);
+      } else if (value == Event.START_OBJECT) {
+        parser.skipObject();
+      } else if (value == Event.START_ARRAY) {
+        parser.skipArray();
+      }
+    }
+  }
+
+  private static <T> void decodeFeatures(
+    final JsonParser parser, final Function<JsonObject, T> featureDecoder, final Consumer<T> consumer
+  ) {
+    // Stop reading when the download has been cancelled
+    while (parser.hasNext() && !Thread.currentThread().isInterrupted()) {
+      final Event event = parser.next();
+      if (event == Event.END_ARRAY) {
+        return;
+      } else if (event == Event.START_OBJECT) {
+        final T feature = featureDecoder.apply(parser.getObject());
+        if (feature != null) {
+          consumer.accept(feature);
+        }
+      } else if (event == Event.START_ARRAY) {
+        parser.skipArray();
+      }
+    }
+  }
+
   /**
    * Decodes a {@link JsonArray} of exactly size 2 to a {@link LatLon} instance. The first value in the
    * {@link JsonArray} is treated as longitude, the second one as latitude.
@@ -87,87 +179,53 @@ public final class JsonDecoder {
 
   /**
    * Decodes a timestamp formatted as a {@link String} to the equivalent UNIX epoch timestamp (number of milliseconds
-   * since 1970-01-01T00:00:00.000+0000).
+   * since 1970-01-01T00:00:00.000+0000). The fraction of the seconds may have any number of digits, so microseconds
+   * are truncated instead of being read as milliseconds.
    * 
    * @param timestamp
-   *          the timestamp formatted according to the format <code>yyyy-MM-dd'T'HH:mm:ss.SSSSSSX</code> or <code>yyyy-MM-dd'T'HH:mm:ss.SSSX</code> or <code>yyyy-MM-dd'T'HH:mm:ss</code>
-   * @return the point in time as a {@link Long} value representing the UNIX epoch time, or <code>null</code> if the
-   *         parameter does not match the required format (this also triggers a warning via
-   *         {@link Logging#warn(Throwable)}), or the parameter is <code>null</code>.
+   *          the timestamp formatted as an ISO 8601 date and time with an offset, for example
+   *          <code>2020-01-31T12:34:56.123456+01:00</code>
+   * @return the point in time as a <code>long</code> value representing the UNIX epoch time, or
+   *         {@link ReportDateFormat#NO_TIME} if the parameter does not match the required format (this also triggers a
+   *         warning via {@link Logging#warn(Throwable)}), or the parameter is <code>null</code>.
    */
-  static Long decodeTimestamp(final String timestamp) {
+  static long decodeTime(final String timestamp) {
     if (timestamp != null) {
       try {
-    	if (timestamp.matches("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{6}[\\+-]\\d{2}:\\d{2}$"))
-    	{
-            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSSX", Locale.UK).parse(timestamp).getTime();
-    	}
-    	else if (timestamp.matches("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}[\\+-]\\d{2}:\\d{2}$"))
-        {
-          return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX", Locale.UK).parse(timestamp).getTime();
-        }
-        else if (timestamp.matches("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}[\\+-]\\d{2}:\\d{2}$"))
-        {
-          return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssX", Locale.UK).parse(timestamp).getTime();
-        }
-        else
-        {
-          throw new ParseException("Could not decode time from the timestamp `%s`", 0);
-        }
-      } catch (ParseException e) {
-        StackTraceElement calledBy = e.getStackTrace()[Math.min(e.getStackTrace().length - 1, 2)];
-        Logging.log(
-          Logging.LEVEL_WARN,
-          String.format(
-            "Could not decode time from the timestamp `%s` (called by %s.%s:%d)", timestamp, calledBy.getClassName(),
-            calledBy.getMethodName(), calledBy.getLineNumber()
-          ), e
-        );
+        return OffsetDateTime.parse(timestamp, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant().toEpochMilli();
+      } catch (DateTimeParseException e) {
+        Logging.log(Logging.LEVEL_WARN, String.format("Could not decode time from the timestamp `%s`", timestamp), e);
       }
     }
-    return null;
+    return ReportDateFormat.NO_TIME;
   }
 
   /**
-   * Decodes a date formatted as a {@link String} to the equivalent UNIX epoch timestamp (number of milliseconds since
-   * 1970-01-01T00:00:00.000+0000).
+   * Decodes a timestamp formatted as a {@link String} to the equivalent UNIX epoch timestamp (number of milliseconds
+   * since 1970-01-01T00:00:00.000+0000).
    * 
-   * @param date
-   *          the date formatted according to the format <code>yyyy-MM-dd'T'HH:mm:ss.SSSSSSX</code> or <code>yyyy-MM-dd'T'HH:mm:ss.SSSX</code> or <code>yyyy-MM-dd'T'HH:mm:ssX</code>
-   * @return the point in time as a {@link Long} value representing a {@link Date}, or <code>null</code> if the
+   * @param timestamp
+   *          the timestamp, see {@link #decodeTime(String)}
+   * @return the point in time as a {@link Long} value representing the UNIX epoch time, or <code>null</code> if the
    *         parameter does not match the required format (this also triggers a warning via
    *         {@link Logging#warn(Throwable)}), or the parameter is <code>null</code>.
    */
+  static Long decodeTimestamp(final String timestamp) {
+    final long time = decodeTime(timestamp);
+    return time == ReportDateFormat.NO_TIME ? null : time;
+  }
+
+  /**
+   * Decodes a date formatted as a {@link String} to the equivalent {@link Date}.
+   * 
+   * @param date
+   *          the date, see {@link #decodeTime(String)}
+   * @return the point in time as a {@link Date}, or <code>null</code> if the parameter does not match the required
+   *         format (this also triggers a warning via {@link Logging#warn(Throwable)}), or the parameter is
+   *         <code>null</code>.
+   */
   static Date decodeDate(final String date) {
-    if (date != null) {
-      try {
-        if (date.matches("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{6}[\\+-]\\d{2}:\\d{2}$"))
-        {
-          return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSSX", Locale.UK).parse(date);
-        }
-        else if (date.matches("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}[\\+-]\\d{2}:\\d{2}$"))
-        {
-          return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX", Locale.UK).parse(date);
-        }
-        else if (date.matches("^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}[\\+-]\\d{2}:\\d{2}$"))
-        {
-          return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssX", Locale.UK).parse(date);
-        }
-        else
-        {
-          throw new ParseException("Could not decode time from the timestamp `%s`", 0);
-        }
-      } catch (ParseException e) {
-        StackTraceElement calledBy = e.getStackTrace()[Math.min(e.getStackTrace().length - 1, 2)];
-        Logging.log(
-          Logging.LEVEL_WARN,
-          String.format(
-            "Could not decode time from the timestamp `%s` (called by %s.%s:%d)", date, calledBy.getClassName(),
-            calledBy.getMethodName(), calledBy.getLineNumber()
-          ), e
-        );
-      }
-    }
-    return null;
+    final long time = decodeTime(date);
+    return time == ReportDateFormat.NO_TIME ? null : new Date(time);
   }
 }
@@ -1,15 +1,20 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.nl_pdok_report.utils.api;
 
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.function.Consumer;
 
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParser;
 
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
 import org.openstreetmap.josm.plugins.nl_pdok_report.ReportData;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
 
 /**
  * Decodes the JSON returned by {@link APIv3} into Java objects. Takes a {@link JsonObject} and
@@ -20,21 +25,103 @@ public final class JsonReportDetailsDecoder {
     // Private constructor to avoid instantiation
   }
 
-  public static void decodeReportInfos(final JsonObject json, final ReportData data) {
-    if (data != null) {
-      JsonDecoder.decodeFeatureCollection(json, j -> {
-        decodeReportInfo(j, data);
-        return null;
-      });
+  public static Collection<ReportBAG> decodeReportInfos(final JsonObject json, final ReportData data) {
+    return decodeReportInfos(json, data, null);
+  }
+
+  /**
+   * Decodes the reports in the given FeatureCollection and adds them to the {@link ReportData} as one batch.
+   *
+   * @param json
+   *          the FeatureCollection returned by the API
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param clip
+   *          if not <code>null</code>, reports outside these bounds are skipped. This is a fallback for backends that
+   *          ignore the bbox parameter of the request.
+   * @return the decoded reports
+   */
+  public static Collection<ReportBAG> decodeReportInfos(
+    final JsonObject json, final ReportData data, final Bounds clip
+  ) {
+    if (data == null) {
+      return new ArrayList<>();
     }
+    final Collection<ReportBAG> result = JsonDecoder.decodeFeatureCollection(json, j -> decodeReportInfo(j, clip));
+    data.addAll(result);
+    return result;
+  }
+
+  /**
+   * Decodes the reports in the FeatureCollection that is read from the given {@link JsonParser} and adds them to the
+   * {@link ReportData}. Each feature is decoded as soon as it has been read, the FeatureCollection as a whole is never
+   * held in memory. The reports are added to the {@link ReportData} as one batch.
+   *
+   * @param parser
+   *          the parser reading the FeatureCollection returned by the API
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param clip
+   *          if not <code>null</code>, reports outside these bounds are skipped
+   * @return the decoded reports
+   */
+  public static Collection<ReportBAG> decodeReportInfos(
+    final JsonParser parser, final ReportData data, final Bounds clip
+  ) {
+    return decodeReportInfos(parser, data, clip, report -> {
+      // Nothing to do for each report
+    });
   }
 
-  private static void decodeReportInfo(final JsonObject json, final ReportData data) {
-    if (json != null && data != null) {
+  /**
+   * Like {@link #decodeReportInfos(JsonParser, ReportData, Bounds)}, but also hands each report to the given consumer
+   * as soon as it has been decoded, so the progress can be shown while the response is being read.
+   *
+   * @param parser
+   *          the parser reading the FeatureCollection returned by the API
+   * @param data
+   *          the {@link ReportData} the reports are added to
+   * @param clip
+   *          if not <code>null</code>, reports outside these bounds are skipped
+   * @param decoded
+   *          receives each report when it has been decoded, before it is added to the {@link ReportData}
+   * @return the decoded reports
+   */
+  public static Collection<ReportBAG> decodeReportInfos(
+    final JsonParser parser, final ReportData data, final Bounds clip, final Consumer<ReportBAG> decoded
+  ) {
+    final Collection<ReportBAG> result = new ArrayList<>();
+    if (data == null) {
+      return result;
+    }
+    JsonDecoder.decodeFeatureCollection(parser, j -> decodeReportInfo(j, clip), report -> {
+      result.add(report);
+      decoded.accept(report);
+    });
+    data.addAll(result);
+    return result;
+  }
+
+  /**
+   * Decodes a single GeoJSON feature, as returned by the API, into a report.
+   *
+   * @param json
+   *          the feature
+   * @return the report, or <code>null</code> if the feature is not a valid report
+   */
+  public static ReportBAG decodeReportInfo(final JsonObject json) {
+    return decodeReportInfo(json, null);
+  }
+
+  private static ReportBAG decodeReportInfo(final JsonObject json, final Bounds clip) {
+    if (json != null) {
       JsonValue geometry = json.get("geometry");
       if (geometry instanceof JsonObject) {
         JsonArray coordinates = ((JsonObject) geometry).get("coordinates").asJsonArray();
         LatLon latLon = JsonDecoder.decodeLatLon(coordinates);
+        if (clip != null && !clip.contains(latLon)) {
+          return null;
+        }
 
         JsonValue properties = json.get("properties");
         if (properties instanceof JsonObject) {
@@ -49,29 +136,25 @@ public final class JsonReportDetailsDecoder {
           String product = ((JsonObject) properties).getString("product", null);
           String status = ((JsonObject) properties).getString("status", null);
           String statusCode = ((JsonObject) properties).getString("statusCode", null);
-          Date reportedAt = JsonDecoder.decodeDate(((JsonObject) properties).getString("tijdstipRegistratie", null));
-          Date statusModifiedAt = JsonDecoder.decodeDate(((JsonObject) properties).getString("tijdstipStatusWijziging", null));
-          Date modifiedAt = JsonDecoder.decodeDate(((JsonObject) properties).getString("tijdstipWijziging", null));
+          long reportedAt = JsonDecoder.decodeTime(((JsonObject) properties).getString("tijdstipRegistratie", null));
+          long statusModifiedAt = JsonDecoder.decodeTime(
+            ((JsonObject) properties).getString("tijdstipStatusWijziging", null)
+          );
+          long modifiedAt = JsonDecoder.decodeTime(((JsonObject) properties).getString("tijdstipWijziging", null));
           String explanation = ((JsonObject) properties).getString("toelichting", null);
           String objectId = ((JsonObject) properties).getString("objectId", null);
           String objectType = ((JsonObject) properties).getString("objectType", null);
 
-          if (reportNumber != null && reportedAt != null) {
-            data.add(
-              new ReportBAG(
-                latLon, baseRegistration, source, sourceMaintainerCode, sourceMaintainerName, locationLink,
-                reportNumber, reportNumberFull, description, product, status, statusCode, reportedAt, statusModifiedAt,
-                modifiedAt, explanation, objectId, objectType
-              )
+          if (reportNumber != null && reportedAt != ReportDateFormat.NO_TIME) {
+            return new ReportBAG(
+              latLon, baseRegistration, source, sourceMaintainerCode, sourceMaintainerName, locationLink,
+              reportNumber, reportNumberFull, description, product, status, statusCode, reportedAt, statusModifiedAt,
+              modifiedAt, explanation, objectId, objectType
             );
-
-            // add to data collection
-            // data.getReports().stream().filter(
-            // img -> img instanceof ReportBAG && key.equals(((ReportBAG) img).getKey())
-            // ).forEach(img -> img.setReportedAt(reportedAt));
           }
         }
       }
     }
+    return null;
   }
 }
@@ -0,0 +1,358 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.dev;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.geotools.api.referencing.FactoryException;
+import org.geotools.api.referencing.operation.MathTransform;
+import org.geotools.api.referencing.operation.TransformException;
+import org.geotools.referencing.CRS;
+
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A local imitation of the report API (<code>/tms/v2/terugmeldingen</code>), for load tests and for trying the plugin
+ * without an API key. Point {@link org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties#API_URL} at
+ * {@link #getApiUrl()}.
+ *
+ * <ul>
+ * <li><code>GET</code> returns a FeatureCollection of synthetic reports within the requested bbox (EPSG:4326 or
+ * EPSG:28992). The same bbox always returns the same reports. If <code>tijdstipWijzigingVanaf</code> is given, only
+ * one in a hundred reports is returned, as modified. The reports are filtered by <code>statusCode</code>,
+ * <code>tijdstipRegistratieVanaf</code> and <code>tijdstipRegistratieTotEnMet</code>. These are the names that the
+ * plugin sends, so the mock does not show whether the real API supports them.</li>
+ * <li><code>POST</code> accepts a multipart report and responds with <code>201 Created</code> and a
+ * <code>Location</code>.</li>
+ * </ul>
+ *
+ * <p>
+ * Every response is delayed by the configured latency (plus up to half of it as jitter), and the configured part of
+ * the requests fails with <code>503 Service Unavailable</code> and a <code>Retry-After</code> header. Responses are
+ * gzip compressed when the client accepts it.
+ * </p>
+ *
+ * <p>
+ * Run stand-alone with <code>[port [features [latencyMs [errorRate]]]]</code>.
+ * </p>
+ *
+ * @author SanderH
+ */
+public class MockReportApiServer {
+  /** The path of the API, the same as that of PDOK. */
+  public static final String PATH = "/tms/v2/terugmeldingen";
+
+  private static final String[] STATUS_CODES = { "NIEUW", "IN_ONDERZOEK", "GOEDGEKEURD", "AFGEWEZEN", "AFGEROND" };
+  private static final String[] STATUSES = { "Nieuw", "In onderzoek", "Goedgekeurd", "Afgewezen", "Afgerond" };
+
+  private final int features;
+  private final long latency;
+  private final double errorRate;
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private MathTransform rdToWgs84;
+
+  private final AtomicLong getRequests = new AtomicLong();
+  private final AtomicLong postRequests = new AtomicLong();
+  private final AtomicLong failedRequests = new AtomicLong();
+
+  /**
+   * @param port
+   *          the port to listen on, 0 for any free port
+   * @param features
+   *          the number of reports returned for every bbox
+   * @param latency
+   *          the delay of every response, in milliseconds
+   * @param errorRate
+   *          the part of the requests that fails, between 0 and 1
+   * @throws IOException
+   *           if the server can't listen on the port
+   */
+  public MockReportApiServer(final int port, final int features, final long latency, final double errorRate)
+    throws IOException {
+    this.features = features;
+    this.latency = latency;
+    this.errorRate = errorRate;
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+    this.executor = Executors.newFixedThreadPool(32, Utils.newThreadFactory("report-mock-api-%d", Thread.NORM_PRIORITY));
+    server.setExecutor(executor);
+    server.createContext(PATH, this::handle);
+  }
+
+  /**
+   * Starts the server.
+   */
+  public void start() {
+    server.start();
+    Logging.info("Mock report API listening on " + getApiUrl());
+  }
+
+  /**
+   * Stops the server, after the running requests have finished.
+   */
+  public void stop() {
+    server.stop(1);
+    executor.shutdown();
+  }
+
+  /**
+   * @return the URL of the API, to be used as {@code API_URL}
+   */
+  public String getApiUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+  }
+
+  /**
+   * @return the number of GET requests that have been handled
+   */
+  public long getGetRequests() {
+    return getRequests.get();
+  }
+
+  /**
+   * @return the number of POST requests that have been handled
+   */
+  public long getPostRequests() {
+    return postRequests.get();
+  }
+
+  /**
+   * @return the number of requests that failed on purpose
+   */
+  public long getFailedRequests() {
+    return failedRequests.get();
+  }
+
+  private void handle(final HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      // The body of a POST is read completely, as a real server would
+      final byte[] buffer = new byte[8192];
+      while (in.read(buffer) >= 0) {
+        // Discard
+      }
+      sleep();
+      if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+        failedRequests.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        exchange.sendResponseHeaders(503, -1);
+      } else if ("GET".equals(exchange.getRequestMethod())) {
+        getRequests.incrementAndGet();
+        handleGet(exchange);
+      } else if ("POST".equals(exchange.getRequestMethod())) {
+        postRequests.incrementAndGet();
+        exchange.getResponseHeaders().set("Location", PATH + '/' + UUID.randomUUID());
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        final byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(201, body.length);
+        exchange.getResponseBody().write(body);
+      } else {
+        exchange.sendResponseHeaders(405, -1);
+      }
+    } catch (RuntimeException e) {
+      Logging.error(e);
+      exchange.sendResponseHeaders(500, -1);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void sleep() {
+    if (latency > 0) {
+      try {
+        Thread.sleep(latency + ThreadLocalRandom.current().nextLong(latency / 2 + 1));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void handleGet(final HttpExchange exchange) throws IOException {
+    final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    final double[] bbox = getBbox(query);
+    final boolean delta = query.containsKey("tijdstipWijzigingVanaf");
+    final Set<String> statusCodes = query.containsKey("statusCode")
+      ? new HashSet<>(Arrays.asList(query.get("statusCode").split(","))) : null;
+    final long registeredFrom = parseTime(query.get("tijdstipRegistratieVanaf"), Long.MIN_VALUE);
+    final long registeredUntil = parseTime(query.get("tijdstipRegistratieTotEnMet"), Long.MAX_VALUE);
+    final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    final boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+    exchange.getResponseHeaders().set("Content-Type", "application/geo+json");
+    if (gzip) {
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    // Chunked, the length is not known in advance
+    exchange.sendResponseHeaders(200, 0);
+    try (
+      OutputStream out = gzip ? new GZIPOutputStream(exchange.getResponseBody(), 8192) : exchange.getResponseBody();
+      JsonGenerator generator = Json.createGenerator(out)
+    ) {
+      generator.writeStartObject().write("type", "FeatureCollection").writeStartArray("features");
+      if (bbox != null) {
+        writeFeatures(generator, bbox, delta, statusCodes, registeredFrom, registeredUntil);
+      }
+      generator.writeEnd().writeEnd();
+    }
+  }
+
+  private void writeFeatures(
+    final JsonGenerator generator, final double[] bbox, final boolean delta, final Set<String> statusCodes,
+    final long registeredFrom, final long registeredUntil
+  ) {
+    // The same bbox always gets the same reports
+    final Random random = new Random(
+      Double.hashCode(bbox[0]) * 31L + Double.hashCode(bbox[1]) * 17L + Double.hashCode(bbox[2]) * 7L
+        + Double.hashCode(bbox[3])
+    );
+    final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.ROOT);
+    format.setTimeZone(TimeZone.getTimeZone("GMT+01:00"));
+    final long now = System.currentTimeMillis();
+    for (int i = 0; i < features; i++) {
+      final double lon = bbox[0] + random.nextDouble() * (bbox[2] - bbox[0]);
+      final double lat = bbox[1] + random.nextDouble() * (bbox[3] - bbox[1]);
+      final long number = random.nextInt(1_000_000_000);
+      final int status = random.nextInt(STATUS_CODES.length);
+      final long reportedAt = now - 86_400_000L * (1 + random.nextInt(3650));
+      // Drawn for every report, so a filter does not change the other reports
+      final int modifiedOffset = random.nextInt(86_400_000);
+      if (
+        delta && i % 100 != 0 || statusCodes != null && !statusCodes.contains(STATUS_CODES[status])
+          || reportedAt < registeredFrom || reportedAt > registeredUntil
+      ) {
+        continue;
+      }
+      final long modifiedAt = delta ? now : reportedAt + modifiedOffset;
+      generator.writeStartObject().write("type", "Feature")
+        .writeStartObject("geometry").write("type", "Point")
+        .writeStartArray("coordinates").write(lon).write(lat).writeEnd()
+        .writeEnd()
+        .writeStartObject("properties")
+        .write("basisregistratie", "BAG")
+        .write("bron", "Mock report API")
+        .write("bronhoudercode", String.format(Locale.ROOT, "%04d", number % 400))
+        .write("bronhoudernaam", "Gemeente " + number % 400)
+        .write("meldingsNummer", number)
+        .write("meldingsNummerVolledig", String.format(Locale.ROOT, "BAG%09d", number))
+        .write("omschrijving", "Synthetic report " + number)
+        .write("status", STATUSES[status])
+        .write("statusCode", STATUS_CODES[status])
+        .write("tijdstipRegistratie", format.format(new Date(reportedAt)))
+        .write("tijdstipStatusWijziging", format.format(new Date(modifiedAt)))
+        .write("tijdstipWijziging", format.format(new Date(modifiedAt)))
+        .write("objectId", String.format(Locale.ROOT, "%016d", number))
+        .write("objectType", "Pand")
+        .writeEnd()
+        .writeEnd();
+    }
+  }
+
+  /**
+   * @return the bbox as <code>minLon,minLat,maxLon,maxLat</code> in EPSG:4326, or <code>null</code> if there is none
+   */
+  private double[] getBbox(final Map<String, String> query) {
+    final String value = query.get("bbox");
+    if (value == null) {
+      return null;
+    }
+    final String[] parts = value.split(",");
+    if (parts.length != 4) {
+      return null;
+    }
+    final double[] bbox = new double[4];
+    for (int i = 0; i < 4; i++) {
+      bbox[i] = Double.parseDouble(parts[i]);
+    }
+    final String crs = query.get("bbox-crs");
+    if (crs != null && crs.endsWith("28992")) {
+      return rdToWgs84(bbox);
+    }
+    return bbox;
+  }
+
+  private synchronized double[] rdToWgs84(final double[] bbox) {
+    try {
+      if (rdToWgs84 == null) {
+        rdToWgs84 = CRS.findMathTransform(CRS.decode("EPSG:28992", true), CRS.decode("EPSG:4326", true));
+      }
+      final double[] result = new double[4];
+      rdToWgs84.transform(bbox, 0, result, 0, 2);
+      return result;
+    } catch (FactoryException | TransformException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static long parseTime(final String value, final long defaultValue) {
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Instant.parse(value).toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return defaultValue;
+    }
+  }
+
+  private static Map<String, String> parseQuery(final String query) throws UnsupportedEncodingException {
+    final Map<String, String> result = new HashMap<>();
+    if (query != null) {
+      for (String part : query.split("&")) {
+        final int index = part.indexOf('=');
+        if (index > 0) {
+          result.put(
+            URLDecoder.decode(part.substring(0, index), StandardCharsets.UTF_8.name()),
+            URLDecoder.decode(part.substring(index + 1), StandardCharsets.UTF_8.name())
+          );
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Runs the server until the process is stopped.
+   *
+   * @param args
+   *          <code>[port [features [latencyMs [errorRate]]]]</code>
+   * @throws IOException
+   *           if the server can't be started
+   */
+  public static void main(final String[] args) throws IOException {
+    new MockReportApiServer(
+      args.length > 0 ? Integer.parseInt(args[0]) : 8080,
+      args.length > 1 ? Integer.parseInt(args[1]) : 100,
+      args.length > 2 ? Long.parseLong(args[2]) : 50,
+      args.length > 3 ? Double.parseDouble(args[3]) : 0
+    ).start();
+  }
+}
@@ -0,0 +1,297 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.dev;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportData;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportNewBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.actions.ReportUploadNewAction;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportExecutors;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.ReportHttpClient;
+import org.openstreetmap.josm.plugins.nl_pdok_report.io.download.ReportSquareDownloadRunnable;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.MultipartUtility.MultiPartResponse;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.spi.preferences.MemoryPreferences;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Downloads tiles and submits reports in parallel, using the same code as the plugin, and reports the throughput, the
+ * latency percentiles and the heap use. By default it runs against an embedded {@link MockReportApiServer}.
+ *
+ * <p>
+ * The preferences are kept in memory, so the JOSM preferences of the user are never changed, and the cache is
+ * disabled.
+ * </p>
+ *
+ * <p>
+ * Options: <code>--url=</code> (API to test instead of the embedded mock), <code>--tiles=</code>,
+ * <code>--uploads=</code>, <code>--threads=</code>, <code>--features=</code>, <code>--latency=</code> (ms) and
+ * <code>--error-rate=</code> (0 to 1). The last three configure the mock.
+ * </p>
+ *
+ * @author SanderH
+ */
+public final class ReportLoadTest {
+  /** Center of the tested area (Utrecht). */
+  private static final LatLon CENTER = new LatLon(52.0907, 5.1214);
+
+  private ReportLoadTest() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * Latencies and outcomes of one kind of request.
+   */
+  private static final class Phase {
+    private final String name;
+    private final long[] latencies;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong items = new AtomicLong();
+    private long duration;
+
+    Phase(final String name, final int size) {
+      this.name = name;
+      this.latencies = new long[size];
+    }
+
+    void record(final long nanos, final boolean success, final long itemCount) {
+      latencies[count.getAndIncrement()] = nanos;
+      if (!success) {
+        failed.incrementAndGet();
+      }
+      items.addAndGet(itemCount);
+    }
+
+    void print() {
+      final long[] sorted = Arrays.copyOf(latencies, count.get());
+      Arrays.sort(sorted);
+      final double seconds = duration / 1e9;
+      Logging.info(
+        String.format(
+          Locale.ROOT, "%-9s %6d requests, %4d failed, %8.1f req/s, %9.1f items/s | p50 %6.1f ms, p90 %6.1f ms, "
+            + "p99 %6.1f ms, max %6.1f ms",
+          name, sorted.length, failed.get(), sorted.length / seconds, items.get() / seconds, percentile(sorted, 50),
+          percentile(sorted, 90), percentile(sorted, 99), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6
+        )
+      );
+    }
+  }
+
+  /**
+   * @param args
+   *          the options, see the description of the class
+   * @throws IOException
+   *           if the mock server can't be started
+   */
+  public static void main(final String[] args) throws IOException {
+    String url = null;
+    int tiles = 400;
+    int uploads = 50;
+    int threads = 8;
+    int features = 200;
+    long latency = 50;
+    double errorRate = 0;
+    for (String arg : args) {
+      final String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("--url=")) {
+        url = value;
+      } else if (arg.startsWith("--tiles=")) {
+        tiles = Integer.parseInt(value);
+      } else if (arg.startsWith("--uploads=")) {
+        uploads = Integer.parseInt(value);
+      } else if (arg.startsWith("--threads=")) {
+        threads = Integer.parseInt(value);
+      } else if (arg.startsWith("--features=")) {
+        features = Integer.parseInt(value);
+      } else if (arg.startsWith("--latency=")) {
+        latency = Long.parseLong(value);
+      } else if (arg.startsWith("--error-rate=")) {
+        errorRate = Double.parseDouble(value);
+      } else {
+        throw new IllegalArgumentException("Unknown option " + arg);
+      }
+    }
+
+    final MockReportApiServer server = url == null ? new MockReportApiServer(0, features, latency, errorRate) : null;
+    if (server != null) {
+      server.start();
+      url = server.getApiUrl();
+    }
+    initPreferences(url);
+    resetPeakHeap();
+    Logging.info(
+      String.format(
+        Locale.ROOT, "Load test against %s with %d threads (%s threads)", url, threads,
+        ReportExecutors.isVirtual() ? "virtual" : "platform"
+      )
+    );
+
+    final ExecutorService executor = ReportExecutors.newExecutor("report-load-test-", threads);
+    try {
+      final Phase download = runDownloads(executor, getTiles(tiles));
+      final Phase upload = runUploads(executor, uploads);
+      download.print();
+      upload.print();
+    } finally {
+      executor.shutdownNow();
+      if (server != null) {
+        server.stop();
+        Logging.info(
+          String.format(
+            Locale.ROOT, "Mock API: %d GET, %d POST, %d failed on purpose", server.getGetRequests(),
+            server.getPostRequests(), server.getFailedRequests()
+          )
+        );
+      }
+    }
+    Logging.info(
+      String.format(
+        Locale.ROOT, "Received %d KiB (%d KiB uncompressed), peak heap %d MiB, heap after GC %d MiB",
+        ReportHttpClient.getReceivedBytes() / 1024, ReportHttpClient.getDecodedBytes() / 1024,
+        getPeakHeap() / 1_048_576, getUsedHeapAfterGc() / 1_048_576
+      )
+    );
+    System.exit(0);
+  }
+
+  private static Phase runDownloads(final ExecutorService executor, final List<ReportTile> tiles) {
+    final Phase phase = new Phase("download", tiles.size());
+    final List<Future<?>> futures = new ArrayList<>(tiles.size());
+    final long start = System.nanoTime();
+    for (ReportTile tile : tiles) {
+      futures.add(executor.submit(() -> {
+        final ReportData data = ReportData.createDetached();
+        final ReportSquareDownloadRunnable download = new ReportSquareDownloadRunnable(data, tile, true);
+        final long t0 = System.nanoTime();
+        download.run();
+        phase.record(System.nanoTime() - t0, download.isSuccessful(), data.getReports().size());
+      }));
+    }
+    await(futures);
+    phase.duration = System.nanoTime() - start;
+    return phase;
+  }
+
+  private static Phase runUploads(final ExecutorService executor, final int uploads) {
+    final Phase phase = new Phase("upload", uploads);
+    final List<Future<?>> futures = new ArrayList<>(uploads);
+    final REPORT_API reportApi = REPORT_API.fromPrefId(ReportProperties.API_REPORT_USE.get());
+    final long start = System.nanoTime();
+    for (int i = 0; i < uploads; i++) {
+      final ReportNewBAG report = new ReportNewBAG(
+        new LatLon(CENTER.lat() + (i % 10) * 0.001, CENTER.lon() + (i / 10) * 0.001)
+      );
+      report.setDescription("Load test report " + i);
+      futures.add(executor.submit(() -> {
+        final long t0 = System.nanoTime();
+        boolean success;
+        try {
+          final MultiPartResponse response = ReportUploadNewAction.submit(report, reportApi, reportApi.getToken());
+          success = response.ResponseCode == 200 || response.ResponseCode == 201;
+        } catch (IOException e) {
+          success = false;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          success = false;
+        }
+        phase.record(System.nanoTime() - t0, success, 1);
+      }));
+    }
+    await(futures);
+    phase.duration = System.nanoTime() - start;
+    return phase;
+  }
+
+  private static void await(final List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        Logging.error(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * @return the given number of download tiles in a square around {@link #CENTER}
+   */
+  private static List<ReportTile> getTiles(final int count) {
+    final ReportTile center = ReportTile.fromLatLon(ReportProperties.DOWNLOAD_TILE_ZOOM.get(), CENTER);
+    final int side = (int) Math.ceil(Math.sqrt(count));
+    final List<ReportTile> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(
+        new ReportTile(center.getZoom(), center.getX() - side / 2 + i % side, center.getY() - side / 2 + i / side)
+      );
+    }
+    return result;
+  }
+
+  private static double percentile(final long[] sorted, final int percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    // Nearest rank
+    final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+    return sorted[Math.max(0, rank - 1)] / 1e6;
+  }
+
+  private static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * @return the sum of the peak usage of all heap pools, which is an upper bound of the peak heap use
+   */
+  private static long getPeakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  private static long getUsedHeapAfterGc() {
+    System.gc();
+    final Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void initPreferences(final String url) {
+    Config.setPreferencesInstance(new MemoryPreferences());
+    Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+    Config.setUrlsProvider(JosmUrls.getInstance());
+    ReportProperties.API_REPORT_USE.put(REPORT_API.PDOK_PRODUCTION.getPrefId());
+    ReportProperties.API_URL.put(url);
+    ReportProperties.API_KEY.put("load-test");
+    ReportProperties.CACHE_ENABLED.put(false);
+  }
+}
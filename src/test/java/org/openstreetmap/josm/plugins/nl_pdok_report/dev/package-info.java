@@ -0,0 +1,6 @@
+// License: GPL. For details, see LICENSE file.
+/**
+ * Tools for developing the plugin: a local mock of the report API and a load test that runs against it. They are part
+ * of the test sources, so they are not in the plugin jar.
+ */
+package org.openstreetmap.josm.plugins.nl_pdok_report.dev;
@@ -0,0 +1,71 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportProperties.REPORT_API;
+
+class ReportCircuitBreakerTest {
+
+  private static ReportCircuitBreaker openBreaker() {
+    final ReportCircuitBreaker breaker = new ReportCircuitBreaker(REPORT_API.PDOK_ACCEPTANCE, 0);
+    for (int i = 0; i < 5; i++) {
+      breaker.recordFailure();
+    }
+    return breaker;
+  }
+
+  @Test
+  void testOpensAfterConsecutiveFailures() {
+    final ReportCircuitBreaker breaker = new ReportCircuitBreaker(REPORT_API.PDOK_ACCEPTANCE, 60_000);
+    for (int i = 0; i < 4; i++) {
+      assertFalse(breaker.recordFailure());
+    }
+    assertTrue(breaker.recordFailure());
+    assertTrue(breaker.isOpen());
+    assertFalse(breaker.allowRequest());
+  }
+
+  @Test
+  void testOnlyOneTrialRequest() {
+    final ReportCircuitBreaker breaker = openBreaker();
+    assertTrue(breaker.allowRequest());
+    assertFalse(breaker.allowRequest());
+    breaker.recordSuccess();
+    assertFalse(breaker.isOpen());
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  void testAbandonedTrialReleasesTheSlot() {
+    final ReportCircuitBreaker breaker = openBreaker();
+    assertTrue(breaker.allowRequest());
+    breaker.recordAbandoned();
+    assertTrue(breaker.isOpen());
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  void testAbandonedByOtherThreadKeepsTheTrial() throws InterruptedException {
+    final ReportCircuitBreaker breaker = openBreaker();
+    assertTrue(breaker.allowRequest());
+    final Thread other = new Thread(breaker::recordAbandoned);
+    other.start();
+    other.join();
+    assertFalse(breaker.allowRequest());
+  }
+
+  @Test
+  void testAbandonWithoutTrialKeepsBreakerOpen() {
+    final ReportCircuitBreaker breaker = new ReportCircuitBreaker(REPORT_API.PDOK_ACCEPTANCE, 60_000);
+    for (int i = 0; i < 5; i++) {
+      breaker.recordFailure();
+    }
+    assertFalse(breaker.allowRequest());
+    breaker.recordAbandoned();
+    assertFalse(breaker.allowRequest());
+    assertTrue(breaker.isOpen());
+  }
+}
@@ -0,0 +1,105 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.io.download;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportTile;
+
+class AdaptiveTilingTest {
+  private static final int THRESHOLD = 100;
+  private static final int MAX_DEPTH = 2;
+
+  /** Every test uses its own tile, the split tiles are shared. */
+  private static ReportTile tile(final int x) {
+    return new ReportTile(14, x, 5400);
+  }
+
+  private static Map<ReportTile, Integer> counts(final List<ReportTile> leaves, final int... counts) {
+    final Map<ReportTile, Integer> result = new HashMap<>();
+    for (int i = 0; i < counts.length; i++) {
+      result.put(leaves.get(i), counts[i]);
+    }
+    return result;
+  }
+
+  @Test
+  void testSplitsAboveThreshold() {
+    final ReportTile tile = tile(8400);
+    assertFalse(AdaptiveTiling.update(tile, counts(Arrays.asList(tile), THRESHOLD), THRESHOLD, MAX_DEPTH));
+    assertEquals(Collections.singletonList(tile), AdaptiveTiling.collectLeaves(tile));
+
+    assertTrue(AdaptiveTiling.update(tile, counts(Arrays.asList(tile), THRESHOLD + 1), THRESHOLD, MAX_DEPTH));
+    assertEquals(Arrays.asList(tile.getChildren()), AdaptiveTiling.collectLeaves(tile));
+  }
+
+  @Test
+  void testSplitsUpToMaxDepth() {
+    final ReportTile tile = tile(8402);
+    AdaptiveTiling.update(tile, counts(Arrays.asList(tile), 1000), THRESHOLD, MAX_DEPTH);
+    final ReportTile child = tile.getChildren()[0];
+    assertTrue(AdaptiveTiling.update(tile, counts(Arrays.asList(child), 1000), THRESHOLD, MAX_DEPTH));
+    assertEquals(7, AdaptiveTiling.collectLeaves(tile).size());
+
+    // The grandchildren are at the maximum depth, so they are not split however many reports they contain
+    final ReportTile grandchild = child.getChildren()[0];
+    assertFalse(AdaptiveTiling.update(tile, counts(Arrays.asList(grandchild), 1000), THRESHOLD, MAX_DEPTH));
+    assertEquals(7, AdaptiveTiling.collectLeaves(tile).size());
+  }
+
+  @Test
+  void testMergesBelowHalfTheThreshold() {
+    final ReportTile tile = tile(8404);
+    AdaptiveTiling.update(tile, counts(Arrays.asList(tile), 1000), THRESHOLD, MAX_DEPTH);
+    final List<ReportTile> leaves = AdaptiveTiling.collectLeaves(tile);
+
+    // Together exactly half of the threshold, that is not sparse enough
+    assertFalse(AdaptiveTiling.update(tile, counts(leaves, 20, 10, 10, 10), THRESHOLD, MAX_DEPTH));
+    assertEquals(4, AdaptiveTiling.collectLeaves(tile).size());
+
+    assertTrue(AdaptiveTiling.update(tile, counts(leaves, 19, 10, 10, 10), THRESHOLD, MAX_DEPTH));
+    assertEquals(Collections.singletonList(tile), AdaptiveTiling.collectLeaves(tile));
+  }
+
+  @Test
+  void testDoesNotMergeWithUnknownParts() {
+    final ReportTile tile = tile(8406);
+    AdaptiveTiling.update(tile, counts(Arrays.asList(tile), 1000), THRESHOLD, MAX_DEPTH);
+    final List<ReportTile> leaves = AdaptiveTiling.collectLeaves(tile);
+    assertFalse(AdaptiveTiling.update(tile, counts(leaves, 0, 0, 0), THRESHOLD, MAX_DEPTH));
+    assertEquals(4, AdaptiveTiling.collectLeaves(tile).size());
+  }
+
+  @Test
+  void testMergesBottomUp() {
+    final ReportTile tile = tile(8408);
+    AdaptiveTiling.update(tile, counts(Arrays.asList(tile), 1000), THRESHOLD, MAX_DEPTH);
+    AdaptiveTiling.update(tile, counts(Arrays.asList(tile.getChildren()[0]), 1000), THRESHOLD, MAX_DEPTH);
+    final List<ReportTile> leaves = AdaptiveTiling.collectLeaves(tile);
+    assertEquals(7, leaves.size());
+
+    // The first child is merged first, after which its parent can be merged as well
+    assertTrue(AdaptiveTiling.update(tile, counts(leaves, 1, 1, 1, 1, 1, 1, 1), THRESHOLD, MAX_DEPTH));
+    assertEquals(Collections.singletonList(tile), AdaptiveTiling.collectLeaves(tile));
+  }
+
+  @Test
+  void testOtherTilesAreNotChanged() {
+    final ReportTile tile = tile(8410);
+    final ReportTile other = tile(8411);
+    AdaptiveTiling.update(other, counts(Arrays.asList(other), 1000), THRESHOLD, MAX_DEPTH);
+    final List<ReportTile> leaves = AdaptiveTiling.collectLeaves(other);
+
+    // Counts of the leaves of another tile are not used to merge the split tiles of this tile
+    assertFalse(AdaptiveTiling.update(tile, counts(leaves, 0, 0, 0, 0), THRESHOLD, MAX_DEPTH));
+    assertEquals(4, AdaptiveTiling.collectLeaves(other).size());
+  }
+}
@@ -0,0 +1,98 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+
+class ReportAttributeIndexTest {
+
+  private static ReportBAG report(final String number, final String statusCode) {
+    return TestReports.report(number, statusCode, ReportDateFormat.NO_TIME, new LatLon(52.37, 4.89));
+  }
+
+  @Test
+  void testGetAndCount() {
+    final ReportAttributeIndex<String> index = new ReportAttributeIndex<>(ReportBAG::getStatusCode);
+    final ReportBAG first = report("1", "NIEUW");
+    final ReportBAG second = report("2", "NIEUW");
+    final ReportBAG third = report("3", "AFGEROND");
+    index.add(first);
+    index.add(second);
+    index.add(third);
+
+    assertEquals(new HashSet<>(Arrays.asList(first, second)), index.get("NIEUW"));
+    assertEquals(2, index.count("NIEUW"));
+    assertEquals(1, index.count("AFGEROND"));
+    assertEquals(0, index.count("AFGEWEZEN"));
+    assertTrue(index.get("AFGEWEZEN").isEmpty());
+    final Map<String, Integer> expected = new HashMap<>();
+    expected.put("NIEUW", 2);
+    expected.put("AFGEROND", 1);
+    assertEquals(expected, index.counts());
+    assertThrows(UnsupportedOperationException.class, () -> index.get("NIEUW").clear());
+  }
+
+  @Test
+  void testNullIsNotIndexed() {
+    final ReportAttributeIndex<String> index = new ReportAttributeIndex<>(ReportBAG::getStatusCode);
+    index.add(report("1", null));
+    assertTrue(index.counts().isEmpty());
+    assertTrue(index.get(null).isEmpty());
+    // Removing a report that is not indexed has no effect
+    index.remove(report("1", null));
+    assertTrue(index.counts().isEmpty());
+  }
+
+  @Test
+  void testRemove() {
+    final ReportAttributeIndex<String> index = new ReportAttributeIndex<>(ReportBAG::getStatusCode);
+    final ReportBAG first = report("1", "NIEUW");
+    final ReportBAG second = report("2", "NIEUW");
+    index.add(first);
+    index.add(second);
+    index.remove(first);
+    assertEquals(Collections.singleton(second), index.get("NIEUW"));
+
+    // The value is not listed anymore once the last report with it is removed
+    index.remove(second);
+    assertFalse(index.counts().containsKey("NIEUW"));
+    assertTrue(index.get("NIEUW").isEmpty());
+  }
+
+  @Test
+  void testUpdatedReport() {
+    final ReportAttributeIndex<String> index = new ReportAttributeIndex<>(ReportBAG::getStatusCode);
+    final ReportBAG open = report("1", "NIEUW");
+    index.add(open);
+    // A modified report replaces the previous version with the same number, as ReportData does it
+    final ReportBAG closed = report("1", "AFGEROND");
+    index.remove(open);
+    index.add(closed);
+
+    assertEquals(0, index.count("NIEUW"));
+    assertEquals(Collections.singleton(closed), index.get("AFGEROND"));
+    assertEquals(Collections.singletonMap("AFGEROND", 1), index.counts());
+  }
+
+  @Test
+  void testClear() {
+    final ReportAttributeIndex<String> index = new ReportAttributeIndex<>(ReportBAG::getStatusCode);
+    index.add(report("1", "NIEUW"));
+    index.clear();
+    assertEquals(0, index.count("NIEUW"));
+    assertTrue(index.counts().isEmpty());
+  }
+}
@@ -0,0 +1,59 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+
+class ReportFilterTest {
+  private static final long DAY = 86_400_000L;
+  private static final long NOW = 1_700_000_000_000L;
+
+  private static ReportBAG report(final String statusCode, final long reportedAt) {
+    return TestReports.report("1", statusCode, reportedAt, new LatLon(52.37, 4.89));
+  }
+
+  @Test
+  void testOf() {
+    assertFalse(ReportFilter.of(false, 1, 0).isClosedFiltered());
+    assertFalse(ReportFilter.of(true, 1, 3).isClosedFiltered());
+    assertEquals(ReportFilter.ALL, ReportFilter.of(false, 1, 0).getClosedSince(NOW));
+    assertEquals(NOW - 365 * DAY, ReportFilter.of(true, 1, 0).getClosedSince(NOW));
+    assertEquals(NOW - 60 * DAY, ReportFilter.of(true, 2, 1).getClosedSince(NOW));
+    assertEquals(NOW - 7 * DAY, ReportFilter.of(true, 7, 2).getClosedSince(NOW));
+    // A negative number is taken as 0
+    assertEquals(NOW, ReportFilter.of(true, -1, 2).getClosedSince(NOW));
+  }
+
+  @Test
+  void testIsWiderThan() {
+    final ReportFilter all = ReportFilter.of(false, 0, 0);
+    final ReportFilter week = ReportFilter.of(true, 7, 2);
+    final ReportFilter month = ReportFilter.of(true, 1, 1);
+    assertTrue(all.isWiderThan(week));
+    assertTrue(month.isWiderThan(week));
+    assertFalse(week.isWiderThan(month));
+    assertFalse(week.isWiderThan(all));
+    assertFalse(all.isWiderThan(all));
+    assertFalse(week.isWiderThan(ReportFilter.of(true, 7, 2)));
+  }
+
+  @Test
+  void testAccepts() {
+    final ReportFilter week = ReportFilter.of(true, 7, 2);
+    // Open reports are always shown
+    assertTrue(week.accepts(report("NIEUW", NOW - 30 * DAY), NOW));
+    assertTrue(week.accepts(report("AFGEROND", NOW - DAY), NOW));
+    assertTrue(week.accepts(report("AFGEWEZEN", NOW - 7 * DAY), NOW));
+    assertFalse(week.accepts(report("AFGEWEZEN", NOW - 7 * DAY - 1), NOW));
+    assertFalse(week.accepts(report("AFGEROND", NOW - 30 * DAY), NOW));
+    // A closed report of which the time of registration is not known is not hidden
+    assertTrue(week.accepts(report("AFGEROND", ReportDateFormat.NO_TIME), NOW));
+    assertTrue(ReportFilter.of(false, 0, 0).accepts(report("AFGEROND", NOW - 3650 * DAY), NOW));
+  }
+}
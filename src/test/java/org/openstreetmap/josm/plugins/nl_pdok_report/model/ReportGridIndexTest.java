@@ -0,0 +1,129 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+
+class ReportGridIndexTest {
+
+  private static ReportBAG report(final String number, final double lat, final double lon) {
+    return TestReports.report(number, "NIEUW", ReportDateFormat.NO_TIME, new LatLon(lat, lon));
+  }
+
+  @Test
+  void testQuery() {
+    final ReportGridIndex index = new ReportGridIndex();
+    final ReportBAG inCell = report("1", 52.3705, 4.8955);
+    final ReportBAG otherCell = report("2", 52.3795, 4.9105);
+    final ReportBAG outside = report("3", 52.5, 5.1);
+    index.add(inCell);
+    index.add(otherCell);
+    index.add(outside);
+
+    assertEquals(
+      new HashSet<>(Arrays.asList(inCell, otherCell)), new HashSet<>(index.query(new Bounds(52.37, 4.89, 52.38, 4.92)))
+    );
+    assertEquals(Arrays.asList(inCell), index.query(new Bounds(52.37, 4.89, 52.375, 4.9)));
+    assertTrue(index.query(new Bounds(51.0, 3.0, 51.1, 3.1)).isEmpty());
+  }
+
+  @Test
+  void testQueryLargeArea() {
+    final ReportGridIndex index = new ReportGridIndex();
+    final ReportBAG amsterdam = report("1", 52.3705, 4.8955);
+    final ReportBAG maastricht = report("2", 50.8514, 5.6910);
+    index.add(amsterdam);
+    index.add(maastricht);
+    // Far more cells than occupied ones, so only the occupied cells are looked at
+    assertEquals(
+      new HashSet<>(Arrays.asList(amsterdam, maastricht)), new HashSet<>(index.query(new Bounds(50, 3, 54, 8)))
+    );
+    assertEquals(Arrays.asList(maastricht), index.query(new Bounds(50, 3, 51, 8)));
+  }
+
+  @Test
+  void testRemove() {
+    final ReportGridIndex index = new ReportGridIndex();
+    final ReportBAG report = report("1", 52.3705, 4.8955);
+    final Bounds area = new Bounds(52.37, 4.89, 52.38, 4.9);
+    index.add(report);
+    index.remove(report);
+    assertTrue(index.query(area).isEmpty());
+    assertNull(index.nearest(report.getLatLon(), 100));
+
+    // Removing a report that is not present has no effect, and does not keep it from being added again
+    index.remove(report);
+    index.add(report);
+    assertEquals(Arrays.asList(report), index.query(area));
+  }
+
+  @Test
+  void testUpdateAfterMove() {
+    final ReportGridIndex index = new ReportGridIndex();
+    final ReportBAG report = report("1", 52.3705, 4.8955);
+    final Bounds before = new Bounds(52.37, 4.89, 52.38, 4.9);
+    final Bounds after = new Bounds(52.42, 4.94, 52.43, 4.95);
+    index.add(report);
+
+    report.move(0.05, 0.05);
+    index.update(report);
+    assertTrue(index.query(before).isEmpty());
+    assertEquals(Arrays.asList(report), index.query(after));
+
+    // Adding a report that is present moves it as well, it is never in two cells
+    report.move(0, 0);
+    index.add(report);
+    assertEquals(Arrays.asList(report), index.query(before));
+    assertTrue(index.query(after).isEmpty());
+  }
+
+  @Test
+  void testUpdateDoesNotAddRemovedReport() {
+    final ReportGridIndex index = new ReportGridIndex();
+    final ReportBAG report = report("1", 52.3705, 4.8955);
+    index.add(report);
+    index.remove(report);
+    index.update(report);
+    assertTrue(index.query(new Bounds(52.37, 4.89, 52.38, 4.9)).isEmpty());
+  }
+
+  @Test
+  void testNearest() {
+    final ReportGridIndex index = new ReportGridIndex();
+    final ReportBAG near = report("1", 52.3705, 4.8955);
+    // About 110 meters to the north
+    final ReportBAG far = report("2", 52.3715, 4.8955);
+    index.add(near);
+    index.add(far);
+    final LatLon click = new LatLon(52.3708, 4.8955);
+
+    assertSame(near, index.nearest(click, 100));
+    assertSame(far, index.nearest(new LatLon(52.3713, 4.8955), 100));
+    assertNull(index.nearest(new LatLon(52.3800, 4.8955), 100));
+    assertSame(far, index.nearest(click, 100, report -> report != near));
+    assertNull(index.nearest(click, 50, report -> report != near));
+  }
+
+  @Test
+  void testClear() {
+    final ReportGridIndex index = new ReportGridIndex();
+    final ReportBAG report = report("1", 52.3705, 4.8955);
+    index.add(report);
+    index.clear();
+    assertTrue(index.query(new Bounds(50, 3, 54, 8)).isEmpty());
+    // A removed report is not added again by an update
+    index.update(report);
+    assertTrue(index.query(new Bounds(50, 3, 54, 8)).isEmpty());
+  }
+}
@@ -0,0 +1,162 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore.CodeColumn;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore.LongColumn;
+import org.openstreetmap.josm.plugins.nl_pdok_report.model.ReportStore.TextColumn;
+
+class ReportStoreTest {
+
+  /**
+   * Runs the garbage collector until the store has freed the rows of the reports that are no longer reachable.
+   */
+  private static void awaitSize(final ReportStore store, final int size) throws InterruptedException {
+    for (int i = 0; i < 100 && store.size() > size; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(size, store.size());
+  }
+
+  private static void fill(final ReportStore store, final int row, final String value) {
+    for (LongColumn column : LongColumn.values()) {
+      store.setLong(row, column, 42);
+    }
+    for (CodeColumn column : CodeColumn.values()) {
+      store.setCode(row, column, value);
+    }
+    for (TextColumn column : TextColumn.values()) {
+      store.setText(row, column, value);
+    }
+  }
+
+  @Test
+  void testReadWrite() {
+    final ReportStore store = new ReportStore();
+    final Object owner = new Object();
+    final int row = store.allocate(owner);
+    store.setLong(row, LongColumn.MODIFIED_AT, 1_700_000_000_000L);
+    store.setCode(row, CodeColumn.STATUS_CODE, "NIEUW");
+    store.setText(row, TextColumn.OBJECT_ID, "0363010000000001");
+    assertEquals(1_700_000_000_000L, store.getLong(row, LongColumn.MODIFIED_AT));
+    assertEquals("NIEUW", store.getCode(row, CodeColumn.STATUS_CODE));
+    assertEquals("0363010000000001", store.getText(row, TextColumn.OBJECT_ID));
+    assertEquals(ReportStore.NO_VALUE, store.getLong(row, LongColumn.REPORTED_AT));
+    assertNull(store.getCode(row, CodeColumn.PRODUCT));
+    assertEquals(1, store.size());
+    assertNotNull(owner);
+  }
+
+  @Test
+  void testRowsInSeveralChunks() {
+    final ReportStore store = new ReportStore();
+    final Object[] owners = new Object[2500];
+    final int[] rows = new int[owners.length];
+    for (int i = 0; i < owners.length; i++) {
+      owners[i] = new Object();
+      rows[i] = store.allocate(owners[i]);
+      store.setLong(rows[i], LongColumn.REPORT_NUMBER, i);
+      store.setCode(rows[i], CodeColumn.STATUS_CODE, i % 2 == 0 ? "NIEUW" : "AFGEROND");
+      store.setText(rows[i], TextColumn.REPORT_NUMBER_FULL, "report " + i);
+    }
+    assertEquals(owners.length, store.size());
+    // The codes are shared by all rows with the same value
+    assertEquals(2, store.getDictionary().size());
+    for (int i = 0; i < owners.length; i++) {
+      assertEquals(i, store.getLong(rows[i], LongColumn.REPORT_NUMBER));
+      assertEquals(i % 2 == 0 ? "NIEUW" : "AFGEROND", store.getCode(rows[i], CodeColumn.STATUS_CODE));
+      assertEquals("report " + i, store.getText(rows[i], TextColumn.REPORT_NUMBER_FULL));
+    }
+    assertNotNull(owners);
+  }
+
+  @Test
+  void testReusedRowIsCleared() throws InterruptedException {
+    final ReportStore store = new ReportStore();
+    final Object kept = new Object();
+    store.allocate(kept);
+    Object owner = new Object();
+    final int row = store.allocate(owner);
+    fill(store, row, "old");
+    owner = null;
+    awaitSize(store, 1);
+
+    final Object next = new Object();
+    assertEquals(row, store.allocate(next));
+    // None of the columns is written, so every value must be the one of a new row
+    for (LongColumn column : LongColumn.values()) {
+      assertEquals(ReportStore.NO_VALUE, store.getLong(row, column), column.name());
+    }
+    for (CodeColumn column : CodeColumn.values()) {
+      assertNull(store.getCode(row, column), column.name());
+    }
+    for (TextColumn column : TextColumn.values()) {
+      assertNull(store.getText(row, column), column.name());
+    }
+    assertNotNull(kept);
+    assertNotNull(next);
+  }
+
+  @Test
+  void testTrimReleasesUnusedChunks() throws InterruptedException {
+    final ReportStore store = new ReportStore();
+    final Object kept = new Object();
+    final int keptRow = store.allocate(kept);
+    fill(store, keptRow, "kept");
+    Object[] owners = new Object[3000];
+    for (int i = 0; i < owners.length; i++) {
+      owners[i] = new Object();
+      fill(store, store.allocate(owners[i]), "dropped");
+    }
+    owners = null;
+    awaitSize(store, 1);
+
+    store.trim();
+    assertEquals(1, store.size());
+    assertEquals("kept", store.getCode(keptRow, CodeColumn.STATUS));
+    assertEquals("kept", store.getText(keptRow, TextColumn.OBJECT_ID));
+    // The rows of the first chunk that were freed are used before a new chunk is allocated
+    final Object next = new Object();
+    final int row = store.allocate(next);
+    assertTrue(row > keptRow && row < 1024);
+    assertNotNull(kept);
+    assertNotNull(next);
+  }
+
+  @Test
+  void testStartsOverWhenEmpty() throws InterruptedException {
+    final ReportStore store = new ReportStore();
+    Object owner = new Object();
+    fill(store, store.allocate(owner), "old");
+    assertEquals(1, store.getDictionary().size());
+    owner = null;
+    awaitSize(store, 0);
+
+    store.trim();
+    assertEquals(0, store.getDictionary().size());
+    final Object next = new Object();
+    assertEquals(0, store.allocate(next));
+    assertEquals(ReportStore.NO_VALUE, store.getLong(0, LongColumn.REPORT_NUMBER));
+    assertNotNull(next);
+  }
+
+  @Test
+  void testSavedBytes() {
+    final ReportStore store = new ReportStore();
+    assertEquals(0, store.getSavedBytes());
+    final Object[] owners = new Object[3];
+    for (int i = 0; i < owners.length; i++) {
+      owners[i] = new Object();
+      store.setCode(store.allocate(owners[i]), CodeColumn.STATUS_CODE, "NIEUW");
+    }
+    // Two of the three values are shared instead of copied, each a String of 24 bytes with an array of 24 bytes
+    assertEquals(2 * 48, store.getSavedBytes());
+    assertNotNull(owners);
+  }
+}
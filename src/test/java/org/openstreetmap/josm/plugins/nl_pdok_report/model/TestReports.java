@@ -0,0 +1,34 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.nl_pdok_report.model;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.nl_pdok_report.ReportBAG;
+import org.openstreetmap.josm.plugins.nl_pdok_report.utils.ReportDateFormat;
+
+/**
+ * Creates the reports that the tests work with.
+ */
+final class TestReports {
+
+  private TestReports() {
+    // Private constructor to avoid instantiation
+  }
+
+  /**
+   * @param number
+   *          the full report number, which identifies the report
+   * @param statusCode
+   *          the status code
+   * @param reportedAt
+   *          the Epoch time of the registration, {@link ReportDateFormat#NO_TIME} if it is not known
+   * @param latLon
+   *          the position
+   * @return a downloaded report of which the other attributes are not known
+   */
+  static ReportBAG report(final String number, final String statusCode, final long reportedAt, final LatLon latLon) {
+    return new ReportBAG(
+      latLon, "BAG", null, null, null, null, null, number, null, null, null, statusCode, reportedAt,
+      ReportDateFormat.NO_TIME, ReportDateFormat.NO_TIME, null, null, null
+    );
+  }
+}